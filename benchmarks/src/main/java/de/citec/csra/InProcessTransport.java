@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra;
+
+import rsb.Factory;
+import rsb.config.ParticipantConfig;
+import rsb.config.TransportConfig;
+
+/**
+ * Switches the default participant configuration to the in-process
+ * transport so that benchmarks neither need a running spread/socket setup
+ * nor measure the network.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class InProcessTransport {
+
+	public static synchronized void enable() {
+		ParticipantConfig config = Factory.getInstance().getDefaultParticipantConfig();
+		for (TransportConfig transport : config.getTransports().values()) {
+			transport.setEnabled(false);
+		}
+		config.getOrCreateTransport("inprocess").setEnabled(true);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.allocation.cli;
+
+import de.citec.csra.InProcessTransport;
+import static de.citec.csra.rst.util.IntervalUtils.buildRelativeRst;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import static java.util.concurrent.TimeUnit.HOURS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import rsb.RSBException;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State.SCHEDULED;
+
+/**
+ * Routing of server updates to the owning allocation with a varying number of
+ * live allocations. Updates are delivered synchronously on the benchmark
+ * thread so that only routing and {@link RemoteAllocation#allocationUpdated}
+ * are measured.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class AllocationDispatchBenchmark {
+
+	@Param({"1", "100", "1000", "10000"})
+	public int allocations;
+
+	private RemoteAllocationService service;
+	private RemoteAllocation[] remotes;
+	private SchedulerListener[] subscribers;
+	private ResourceAllocation[] updates;
+
+	@Setup
+	public void setup() throws RSBException {
+		InProcessTransport.enable();
+		this.service = RemoteAllocationService.getInstance();
+		this.remotes = new RemoteAllocation[allocations];
+		this.subscribers = new SchedulerListener[allocations];
+		this.updates = new ResourceAllocation[allocations];
+		for (int i = 0; i < allocations; i++) {
+			RemoteAllocation remote = new RemoteAllocation(ResourceAllocation.newBuilder()
+					.setDescription("benchmark")
+					.setSlot(buildRelativeRst(0, 1, HOURS))
+					.addResourceIds("resource-" + i));
+			this.remotes[i] = remote;
+			this.updates[i] = ResourceAllocation.newBuilder(remote.getAllocation()).setState(SCHEDULED).build();
+			this.subscribers[i] = remote::allocationUpdated;
+			this.service.subscribe(remote.getAllocation().getId(), this.subscribers[i]);
+		}
+	}
+
+	@TearDown
+	public void teardown() throws RSBException, InterruptedException {
+		for (int i = 0; i < allocations; i++) {
+			this.service.unsubscribe(this.remotes[i].getAllocation().getId(), this.subscribers[i]);
+		}
+		this.service.shutdownNow();
+	}
+
+	@Benchmark
+	public ResourceAllocation dispatch() {
+		ResourceAllocation update = this.updates[ThreadLocalRandom.current().nextInt(allocations)];
+		this.service.dispatch(update);
+		return update;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.allocation.cli;
+
+import de.citec.csra.allocation.srv.EmbeddedAllocationScheduler;
+import static de.citec.csra.rst.util.IntervalUtils.buildRelativeRst;
+import java.util.concurrent.TimeUnit;
+import static java.util.concurrent.TimeUnit.HOURS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import rsb.RSBException;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+
+/**
+ * Schedule and release round trip of a {@link RemoteAllocation} against the
+ * {@link EmbeddedAllocationScheduler}.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class EmbeddedSchedulerBenchmark {
+
+	private EmbeddedAllocationScheduler scheduler;
+
+	@Setup
+	public void setup() {
+		this.scheduler = new EmbeddedAllocationScheduler();
+		RemoteAllocationService.setLocalScheduler(this.scheduler);
+	}
+
+	@TearDown
+	public void teardown() throws RSBException, InterruptedException {
+		RemoteAllocationService.getInstance().shutdownNow();
+		RemoteAllocationService.setLocalScheduler(null);
+		this.scheduler.shutdown();
+	}
+
+	@Benchmark
+	public ResourceAllocation scheduleRelease() throws Exception {
+		RemoteAllocation remote = new RemoteAllocation(ResourceAllocation.newBuilder()
+				.setDescription("benchmark")
+				.setSlot(buildRelativeRst(0, 1, HOURS))
+				.addResourceIds("resource"));
+		remote.schedule();
+		remote.whenScheduled().get();
+		remote.release();
+		return remote.whenTerminated().get();
+	}
+}
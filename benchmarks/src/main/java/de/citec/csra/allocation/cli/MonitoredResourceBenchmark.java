@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.allocation.cli;
+
+import de.citec.csra.InProcessTransport;
+import static de.citec.csra.rst.util.IntervalUtils.buildRelativeRst;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import static java.util.concurrent.TimeUnit.HOURS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import rsb.RSBException;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State.ALLOCATED;
+
+/**
+ * Matching of server updates against the resources of many
+ * {@link MonitoredResource}s.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class MonitoredResourceBenchmark {
+
+	@Param({"1", "100", "1000"})
+	public int monitors;
+
+	@Param({"1", "5"})
+	public int resourcesPerEvent;
+
+	private RemoteAllocationService service;
+	private MonitoredResource[] resources;
+	private ResourceAllocation[] updates;
+
+	@Setup
+	public void setup() throws RSBException {
+		InProcessTransport.enable();
+		this.service = RemoteAllocationService.getInstance();
+		this.resources = new MonitoredResource[monitors];
+		for (int i = 0; i < monitors; i++) {
+			this.resources[i] = new MonitoredResource("resource-" + i);
+			this.resources[i].startup();
+		}
+		this.updates = new ResourceAllocation[1024];
+		for (int i = 0; i < this.updates.length; i++) {
+			ResourceAllocation.Builder update = ResourceAllocation.newBuilder()
+					.setId("update-" + i)
+					.setState(ALLOCATED)
+					.setDescription("benchmark")
+					.setSlot(buildRelativeRst(0, 1, HOURS));
+			for (int r = 0; r < resourcesPerEvent; r++) {
+				update.addResourceIds("resource-" + ThreadLocalRandom.current().nextInt(monitors * 2));
+			}
+			this.updates[i] = update.build();
+		}
+	}
+
+	@TearDown
+	public void teardown() throws RSBException, InterruptedException {
+		for (MonitoredResource resource : this.resources) {
+			resource.shutdown();
+		}
+		this.service.shutdownNow();
+	}
+
+	@Benchmark
+	public ResourceAllocation match() {
+		ResourceAllocation update = this.updates[ThreadLocalRandom.current().nextInt(this.updates.length)];
+		this.service.dispatch(update);
+		return update;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.task;
+
+import de.citec.csra.InProcessTransport;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import rsb.RSBException;
+
+/**
+ * Payload serialization of {@link TaskProxy}. Publishing uses the in-process
+ * transport, nobody listens at the benchmark scope.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class TaskPayloadBenchmark {
+
+	private TaskProxy proxy;
+
+	@Setup
+	public void setup() throws RSBException, InterruptedException {
+		InProcessTransport.enable();
+		this.proxy = new TaskProxy("/benchmark/payload/" + Thread.currentThread().getId());
+		this.proxy.activate();
+		this.proxy.update("benchmark-payload");
+	}
+
+	@TearDown
+	public void teardown() {
+		this.proxy.deactivate();
+	}
+
+	@Benchmark
+	public TaskProxy setPayload() {
+		this.proxy.update("benchmark-payload");
+		return this.proxy;
+	}
+
+	@Benchmark
+	public Object getPayload() {
+		return this.proxy.getPayload();
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.task;
+
+import de.citec.csra.InProcessTransport;
+import de.citec.csra.task.cli.RemoteTask;
+import de.citec.csra.task.srv.ExecutorFactoryTaskHandler;
+import de.citec.csra.task.srv.TaskServer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Full {@link RemoteTask} to {@link TaskServer} round trip with an echoing
+ * task over the in-process transport.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class TaskRoundTripBenchmark {
+
+	private final static String SCOPE = "/benchmark/roundtrip/";
+	private final static int FAN_OUT = 64;
+	private TaskServer server;
+	private Thread serverThread;
+
+	@Setup
+	public void setup() throws Exception {
+		InProcessTransport.enable();
+		this.server = new TaskServer(SCOPE, new ExecutorFactoryTaskHandler((description) -> () -> description));
+		this.server.activate();
+		this.serverThread = new Thread(() -> {
+			try {
+				this.server.listen();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}, "benchmark-task-server");
+		this.serverThread.start();
+	}
+
+	@TearDown
+	public void teardown() throws Exception {
+		this.server.deactivate();
+		this.serverThread.interrupt();
+		this.serverThread.join();
+	}
+
+	@Benchmark
+	public Object roundTrip() throws Exception {
+		return new RemoteTask<>(SCOPE, "benchmark-payload").call();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FAN_OUT)
+	public Object asyncFanOut() throws Exception {
+		CompletableFuture<?>[] results = new CompletableFuture<?>[FAN_OUT];
+		for (int i = 0; i < FAN_OUT; i++) {
+			results[i] = new RemoteTask<>(SCOPE, "benchmark-payload").submitAsync();
+		}
+		return CompletableFuture.allOf(results).join();
+	}
+}
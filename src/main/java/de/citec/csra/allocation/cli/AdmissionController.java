@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.allocation.cli;
+
+import de.citec.csra.util.Metrics;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import rsb.RSBException;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State.CANCELLED;
+
+/**
+ * Limits the number of allocation requests a process has outstanding at the
+ * server, in total and per resource. Requests beyond these limits are queued
+ * and sent by descending priority, then by policy (strict slots first), then
+ * by slot begin, as soon as earlier requests terminate.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class AdmissionController {
+
+	private final static Logger LOG = Logger.getLogger(AdmissionController.class.getName());
+	private final static String MAXVAR = "RTA_ADMISSION_MAX";
+	private final static String RESOURCEVAR = "RTA_ADMISSION_PER_RESOURCE";
+	private static AdmissionController instance;
+
+	private final static Comparator<Entry> ORDER = Comparator
+			.comparing((Entry e) -> e.allocation.getPriority()).reversed()
+			.thenComparing((e) -> e.allocation.getPolicy())
+			.thenComparingLong((e) -> e.allocation.getSlot().getBegin().getTime())
+			.thenComparingLong((e) -> e.sequence);
+
+	private final int maxOutstanding;
+	private final int maxPerResource;
+	private final TreeSet<Entry> queue = new TreeSet<>(ORDER);
+	private final Map<String, Integer> perResource = new HashMap<>();
+	private int outstanding;
+	private long sequence;
+
+	private static class Entry {
+
+		private final RemoteAllocation remote;
+		private final ResourceAllocation allocation;
+		private final long sequence;
+
+		Entry(RemoteAllocation remote, long sequence) {
+			this.remote = remote;
+			this.allocation = remote.getAllocation();
+			this.sequence = sequence;
+		}
+	}
+
+	public static synchronized AdmissionController getInstance() {
+		if (instance == null) {
+			instance = new AdmissionController(limit(MAXVAR, 32), limit(RESOURCEVAR, 4));
+			Metrics.getInstance().gauge("allocation.admission.queue", instance::getQueued);
+			Metrics.getInstance().gauge("allocation.admission.outstanding", instance::getOutstanding);
+		}
+		return instance;
+	}
+
+	private static int limit(String var, int fallback) {
+		if (System.getenv().containsKey(var)) {
+			try {
+				return Integer.parseInt(System.getenv(var));
+			} catch (NumberFormatException ex) {
+				LOG.log(Level.WARNING, "ignoring invalid ${0}=''{1}''", new String[]{var, System.getenv(var)});
+			}
+		}
+		return fallback;
+	}
+
+	public AdmissionController(int maxOutstanding, int maxPerResource) {
+		if (maxOutstanding < 1 || maxPerResource < 1) {
+			throw new IllegalArgumentException("Admission limits must be positive");
+		}
+		this.maxOutstanding = maxOutstanding;
+		this.maxPerResource = maxPerResource;
+	}
+
+	/**
+	 * Schedules the allocation as soon as the limits permit.
+	 */
+	public void submit(RemoteAllocation remote) {
+		synchronized (this) {
+			this.queue.add(new Entry(remote, this.sequence++));
+		}
+		admit();
+	}
+
+	/**
+	 * Removes a queued allocation and terminates it locally. Returns
+	 * {@code false} if the allocation has already been sent or was never
+	 * submitted.
+	 */
+	public boolean withdraw(RemoteAllocation remote) {
+		synchronized (this) {
+			if (!this.queue.removeIf((e) -> e.remote == remote)) {
+				return false;
+			}
+		}
+		remote.terminate(CANCELLED);
+		return true;
+	}
+
+	public synchronized int getQueued() {
+		return this.queue.size();
+	}
+
+	public synchronized int getOutstanding() {
+		return this.outstanding;
+	}
+
+	private void admit() {
+		List<Entry> admitted = new ArrayList<>();
+		synchronized (this) {
+			Iterator<Entry> it = this.queue.iterator();
+			while (this.outstanding < this.maxOutstanding && it.hasNext()) {
+				Entry e = it.next();
+				if (!e.remote.isAlive()) {
+					LOG.log(Level.FINE, "dropping terminated allocation request ''{0}''", e.allocation.getId());
+					it.remove();
+				} else if (isAdmissible(e)) {
+					it.remove();
+					this.outstanding++;
+					e.allocation.getResourceIdsList().forEach((r) -> this.perResource.merge(r, 1, Integer::sum));
+					admitted.add(e);
+				}
+			}
+		}
+		for (Entry e : admitted) {
+			e.remote.whenTerminated().whenComplete((a, ex) -> release(e));
+			try {
+				LOG.log(Level.FINE, "admitting allocation request ''{0}''", e.allocation.getId());
+				e.remote.schedule();
+			} catch (RSBException ex) {
+				LOG.log(Level.WARNING, "Could not send admitted allocation request, cancelling", ex);
+				e.remote.terminate(CANCELLED);
+			}
+		}
+	}
+
+	private boolean isAdmissible(Entry e) {
+		for (String resource : e.allocation.getResourceIdsList()) {
+			if (this.perResource.getOrDefault(resource, 0) >= this.maxPerResource) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void release(Entry e) {
+		synchronized (this) {
+			this.outstanding--;
+			e.allocation.getResourceIdsList().forEach((r) -> this.perResource.computeIfPresent(r, (k, n) -> n > 1 ? n - 1 : null));
+		}
+		if (getQueued() > 0) {
+			RemoteAllocationService.getPublishPool().execute(this::admit);
+		}
+	}
+}
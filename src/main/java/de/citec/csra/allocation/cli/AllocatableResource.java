@@ -37,6 +37,7 @@ public class AllocatableResource extends AllocationMonitor implements SchedulerL
 
 	private final static Logger LOG = Logger.getLogger(ExecutableResource.class.getName());
 	private final RemoteAllocation remote;
+	private LeaseRenewal renewal;
 
 	public AllocatableResource(ResourceAllocation allocation) {
 		this.remote = new RemoteAllocation(ResourceAllocation.newBuilder(allocation));
@@ -63,10 +64,22 @@ public class AllocatableResource extends AllocationMonitor implements SchedulerL
 				addAllResourceIds(Arrays.asList(resources)));
 	}
 
+	/**
+	 * Extends the slot by {@code increment} whenever less than {@code margin}
+	 * remains, up to a total slot duration of {@code maximum}. Must be called
+	 * before {@link #startup()}.
+	 */
+	public void setAutoRenewal(long increment, long margin, long maximum, TimeUnit unit) {
+		this.renewal = new LeaseRenewal(this.remote, increment, margin, maximum, unit);
+	}
+
 	@Override
 	public void startup() throws RSBException {
 		synchronized (this) {
 			if (getState() == null) {
+				if (this.renewal != null) {
+					this.renewal.start();
+				}
 				this.remote.addSchedulerListener(this);
 				this.remote.schedule();
 			} else {
@@ -78,6 +91,9 @@ public class AllocatableResource extends AllocationMonitor implements SchedulerL
 	@Override
 	public void shutdown() throws RSBException {
 		synchronized (this) {
+			if (this.renewal != null) {
+				this.renewal.stop();
+			}
 			switch (getState()) {
 				case REQUESTED:
 				case SCHEDULED:
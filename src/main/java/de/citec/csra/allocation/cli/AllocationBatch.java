@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.allocation.cli;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import rsb.RSBException;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State.*;
+
+/**
+ * Schedules, cancels or releases a number of allocations with a single
+ * publishing pass. Each operation returns a future that completes with the
+ * allocations of all members, in member order, once every member has reached
+ * the state the operation waits for.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class AllocationBatch {
+
+	private final static Logger LOG = Logger.getLogger(AllocationBatch.class.getName());
+
+	private final List<RemoteAllocation> members;
+
+	public AllocationBatch(Collection<RemoteAllocation> members) {
+		this.members = new ArrayList<>(members);
+	}
+
+	public List<RemoteAllocation> getMembers() {
+		return this.members;
+	}
+
+	public CompletableFuture<List<ResourceAllocation>> schedule() throws RSBException {
+		CompletableFuture<List<ResourceAllocation>> result = awaitScheduled();
+		List<ResourceAllocation> requests = new ArrayList<>(this.members.size());
+		List<RemoteAllocation> prepared = new ArrayList<>(this.members.size());
+		try {
+			for (RemoteAllocation member : this.members) {
+				ResourceAllocation request = member.prepareSchedule();
+				if (request != null) {
+					prepared.add(member);
+					requests.add(request);
+				}
+			}
+			publish(requests);
+		} catch (RSBException | RuntimeException ex) {
+			LOG.log(Level.FINE, "batch scheduling failed, rolling back {0} prepared requests", prepared.size());
+			prepared.forEach(RemoteAllocation::rollbackSchedule);
+			throw ex;
+		}
+		return result;
+	}
+
+	public CompletableFuture<List<ResourceAllocation>> cancel() throws RSBException {
+		return requestState(CANCELLED);
+	}
+
+	public CompletableFuture<List<ResourceAllocation>> abort() throws RSBException {
+		return requestState(ABORTED);
+	}
+
+	public CompletableFuture<List<ResourceAllocation>> release() throws RSBException {
+		return requestState(RELEASED);
+	}
+
+	public CompletableFuture<List<ResourceAllocation>> shutdown() throws RSBException {
+		CompletableFuture<List<ResourceAllocation>> result = awaitTerminated();
+		List<ResourceAllocation> requests = new ArrayList<>(this.members.size());
+		for (RemoteAllocation member : this.members) {
+			ResourceAllocation request;
+			switch (member.getCurrentState()) {
+				case REQUESTED:
+				case SCHEDULED:
+					request = member.prepareState(CANCELLED);
+					break;
+				case ALLOCATED:
+					request = member.prepareState(ABORTED);
+					break;
+				default:
+					request = null;
+					break;
+			}
+			if (request != null) {
+				requests.add(request);
+			}
+		}
+		publish(requests);
+		return result;
+	}
+
+	private CompletableFuture<List<ResourceAllocation>> requestState(State state) throws RSBException {
+		CompletableFuture<List<ResourceAllocation>> result = awaitTerminated();
+		List<ResourceAllocation> requests = new ArrayList<>(this.members.size());
+		for (RemoteAllocation member : this.members) {
+			ResourceAllocation request = member.prepareState(state);
+			if (request != null) {
+				requests.add(request);
+			}
+		}
+		publish(requests);
+		return result;
+	}
+
+	private void publish(List<ResourceAllocation> requests) throws RSBException {
+		if (!requests.isEmpty()) {
+			LOG.log(Level.FINE, "publishing batch of {0} allocation requests", requests.size());
+			RemoteAllocationService.getInstance().update(requests);
+		}
+	}
+
+	private CompletableFuture<List<ResourceAllocation>> awaitScheduled() {
+		List<CompletableFuture<ResourceAllocation>> futures = new ArrayList<>(this.members.size());
+		for (RemoteAllocation member : this.members) {
+			futures.add(member.whenScheduled().exceptionally((ex) -> member.whenTerminated().getNow(member.getAllocation())));
+		}
+		return collect(futures);
+	}
+
+	private CompletableFuture<List<ResourceAllocation>> awaitTerminated() {
+		List<CompletableFuture<ResourceAllocation>> futures = new ArrayList<>(this.members.size());
+		for (RemoteAllocation member : this.members) {
+			futures.add(member.whenTerminated());
+		}
+		return collect(futures);
+	}
+
+	private static CompletableFuture<List<ResourceAllocation>> collect(List<CompletableFuture<ResourceAllocation>> futures) {
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).thenApply((v) -> {
+			List<ResourceAllocation> reached = new ArrayList<>(futures.size());
+			futures.forEach((f) -> reached.add(f.join()));
+			return reached;
+		});
+	}
+}
@@ -17,8 +17,9 @@
 package de.citec.csra.allocation.cli;
 
 import static de.citec.csra.rst.util.IntervalUtils.currentTimeInMicros;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import java.util.concurrent.TimeoutException;
@@ -26,70 +27,108 @@ import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
 import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State;
 
 /**
+ * Keeps track of the allocation states observed so far. Only a fixed number
+ * of recent states is retained unless the full history is requested.
  *
  * @author Patrick Holthaus
  */
 public class AllocationMonitor implements SchedulerListener {
 
-	private final LinkedBlockingDeque<State> queue = new LinkedBlockingDeque<>();
+	private final static int RECENT = 16;
+
+	private final Object lock = new Object();
+	private final State[] recent = new State[RECENT];
+	private final List<State> history;
+	private long count;
+	private volatile int seen;
+	private volatile State last;
+
+	public AllocationMonitor() {
+		this(false);
+	}
+
+	public AllocationMonitor(boolean fullHistory) {
+		this.history = fullHistory ? new ArrayList<>() : null;
+	}
 
 	@Override
 	public void allocationUpdated(ResourceAllocation allocation) {
-		synchronized (this.queue) {
-			this.queue.add(allocation.getState());
-			this.queue.notifyAll();
-		}
+		addState(allocation.getState());
 	}
 
 	void addState(State state) {
-		synchronized (this.queue) {
-			this.queue.add(state);
-			this.queue.notifyAll();
+		synchronized (this.lock) {
+			this.recent[(int) (this.count++ % RECENT)] = state;
+			if (this.history != null) {
+				this.history.add(state);
+			}
+			this.last = state;
+			this.seen |= mask(state);
+			this.lock.notifyAll();
 		}
 	}
 
 	public State getState() {
-		synchronized (this.queue) {
-			return this.queue.peekLast();
-		}
+		return this.last;
 	}
 
 	public boolean hasState(State state) {
-		synchronized (this.queue) {
-			return this.queue.contains(state);
-		}
+		return (this.seen & mask(state)) != 0;
 	}
 
-	private boolean containsAny(State... states) {
-		synchronized (this.queue) {
-			for (State state : states) {
-				if (this.queue.contains(state)) {
-					return true;
-				}
+	public List<State> getRecentStates() {
+		synchronized (this.lock) {
+			int size = (int) Math.min(this.count, RECENT);
+			List<State> states = new ArrayList<>(size);
+			for (long i = this.count - size; i < this.count; i++) {
+				states.add(this.recent[(int) (i % RECENT)]);
 			}
+			return states;
+		}
+	}
+
+	public List<State> getHistory() {
+		if (this.history == null) {
+			return getRecentStates();
+		}
+		synchronized (this.lock) {
+			return new ArrayList<>(this.history);
+		}
+	}
+
+	private static int mask(State state) {
+		return 1 << state.ordinal();
+	}
+
+	private static int mask(State... states) {
+		int mask = 0;
+		for (State state : states) {
+			mask |= mask(state);
 		}
-		return false;
+		return mask;
 	}
 
 	public void await(State... states) throws InterruptedException {
-		synchronized (this.queue) {
-			while (!containsAny(states)) {
-				this.queue.wait();
+		int mask = mask(states);
+		synchronized (this.lock) {
+			while ((this.seen & mask) == 0) {
+				this.lock.wait();
 			}
 		}
 	}
 
 	public void await(long timeout, TimeUnit unit, State... states) throws InterruptedException, TimeoutException {
-		synchronized (this.queue) {
+		int mask = mask(states);
+		synchronized (this.lock) {
 			timeout = MICROSECONDS.convert(timeout, unit);
-			if (containsAny(states)) {
+			if ((this.seen & mask) != 0) {
 				return;
 			}
 			long start = currentTimeInMicros();
 			long remaining = timeout;
 			while (remaining > 0) {
-				this.queue.wait(remaining / 1000, (int) ((remaining % 1000) * 1000));
-				if (containsAny(states)) {
+				this.lock.wait(remaining / 1000, (int) ((remaining % 1000) * 1000));
+				if ((this.seen & mask) != 0) {
 					return;
 				} else {
 					remaining = timeout - (currentTimeInMicros() - start);
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.allocation.cli;
+
+import static de.citec.csra.rst.util.IntervalUtils.currentTimeInMicros;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import rsb.RSBException;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State.ALLOCATED;
+
+/**
+ * Process-wide view of the latest known state of all live allocations at the
+ * allocation scope, indexed by allocation id and by resource id. Terminated
+ * and expired allocations are evicted, expired ones lazily on lookup and
+ * periodically on updates. Lookups do not block.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class AllocationStateCache implements SchedulerListener {
+
+	private final static long SWEEP_INTERVAL = 1000000;
+	private static AllocationStateCache instance;
+
+	private final Map<String, ResourceAllocation> allocations = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, ResourceAllocation>> resources = new ConcurrentHashMap<>();
+	private final AtomicLong nextSweep = new AtomicLong();
+	private RemoteAllocationService service;
+
+	public static synchronized AllocationStateCache getInstance() throws RSBException {
+		if (instance == null) {
+			instance = new AllocationStateCache();
+		}
+		RemoteAllocationService current = RemoteAllocationService.getInstance();
+		if (instance.service != current) {
+			instance.service = current;
+			current.addAllocationListener(instance);
+		}
+		return instance;
+	}
+
+	private AllocationStateCache() {
+	}
+
+	@Override
+	public void allocationUpdated(ResourceAllocation allocation) {
+		String id = allocation.getId();
+		ResourceAllocation previous;
+		if (isLive(allocation)) {
+			previous = this.allocations.put(id, allocation);
+			for (String resource : allocation.getResourceIdsList()) {
+				this.resources.computeIfAbsent(resource, (r) -> new ConcurrentHashMap<>()).put(id, allocation);
+			}
+		} else {
+			previous = this.allocations.remove(id);
+			for (String resource : allocation.getResourceIdsList()) {
+				evict(resource, id);
+			}
+		}
+		if (previous != null) {
+			for (String resource : previous.getResourceIdsList()) {
+				if (!allocation.getResourceIdsList().contains(resource)) {
+					evict(resource, id);
+				}
+			}
+		}
+		sweep();
+	}
+
+	/**
+	 * Expires allocations whose slot has ended without a final update, at
+	 * most once per sweep interval.
+	 */
+	private void sweep() {
+		long now = currentTimeInMicros();
+		long next = this.nextSweep.get();
+		if (now < next || !this.nextSweep.compareAndSet(next, now + SWEEP_INTERVAL)) {
+			return;
+		}
+		this.allocations.values().forEach((a) -> {
+			if (!isLive(a)) {
+				expire(a);
+			}
+		});
+	}
+
+	private void expire(ResourceAllocation allocation) {
+		this.allocations.remove(allocation.getId(), allocation);
+		for (String resource : allocation.getResourceIdsList()) {
+			evict(resource, allocation.getId(), allocation);
+		}
+	}
+
+	private void evict(String resource, String id) {
+		this.resources.computeIfPresent(resource, (r, as) -> {
+			as.remove(id);
+			return as.isEmpty() ? null : as;
+		});
+	}
+
+	private void evict(String resource, String id, ResourceAllocation allocation) {
+		this.resources.computeIfPresent(resource, (r, as) -> {
+			as.remove(id, allocation);
+			return as.isEmpty() ? null : as;
+		});
+	}
+
+	private static boolean isLive(ResourceAllocation allocation) {
+		switch (allocation.getState()) {
+			case REQUESTED:
+			case SCHEDULED:
+			case ALLOCATED:
+				return allocation.getSlot().getEnd().getTime() > currentTimeInMicros();
+			default:
+				return false;
+		}
+	}
+
+	public ResourceAllocation getAllocation(String id) {
+		ResourceAllocation allocation = this.allocations.get(id);
+		return allocation != null && isLive(allocation) ? allocation : null;
+	}
+
+	public Collection<ResourceAllocation> activeAllocations() {
+		List<ResourceAllocation> active = new ArrayList<>(this.allocations.size());
+		this.allocations.values().forEach((a) -> {
+			if (isLive(a)) {
+				active.add(a);
+			} else {
+				expire(a);
+			}
+		});
+		return active;
+	}
+
+	public Collection<ResourceAllocation> allocations(String resource) {
+		Map<String, ResourceAllocation> as = this.resources.get(resource);
+		if (as == null) {
+			return Collections.emptyList();
+		}
+		List<ResourceAllocation> live = new ArrayList<>(as.size());
+		as.values().forEach((a) -> {
+			if (isLive(a)) {
+				live.add(a);
+			} else {
+				evict(resource, a.getId(), a);
+			}
+		});
+		return live;
+	}
+
+	public Collection<ResourceAllocation> currentHolders(String resource) {
+		long now = currentTimeInMicros();
+		List<ResourceAllocation> holders = new ArrayList<>();
+		for (ResourceAllocation a : allocations(resource)) {
+			if (a.getState() == ALLOCATED && a.getSlot().getBegin().getTime() <= now) {
+				holders.add(a);
+			}
+		}
+		return holders;
+	}
+
+	public boolean isBusy(String resource) {
+		return !currentHolders(resource).isEmpty();
+	}
+}
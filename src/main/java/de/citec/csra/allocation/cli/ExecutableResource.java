@@ -18,12 +18,20 @@ package de.citec.csra.allocation.cli;
 
 import static de.citec.csra.allocation.cli.ExecutableResource.Completion.EXPIRE;
 import de.citec.csra.rst.util.IntervalUtils;
+import de.citec.csra.util.LatencyHistogram;
+import de.citec.csra.util.Metrics;
+import de.citec.csra.util.SerialExecutor;
+import de.citec.csra.util.Threads;
+import de.citec.csra.util.TimeoutService;
 import java.util.Arrays;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -46,18 +54,60 @@ public abstract class ExecutableResource<T> implements SchedulerListener, Execut
 	}
 
 	private final static Logger LOG = Logger.getLogger(ExecutableResource.class.getName());
+	private final static String THREADSVAR = "RTA_RESOURCE_THREADS";
+	private final static LatencyHistogram QUEUE_DELAY = Metrics.getInstance().histogram("resource.queue.delay");
+	private static ExecutorService sharedExecutor;
 	private final ExecutorService executor;
 	private boolean externalExecutor = true;
 	private final Completion completion;
 	private final RemoteAllocation remote;
 	private Future<T> result;
+	private LeaseRenewal renewal;
+	private AdmissionController admission;
+	private SerialExecutor serial;
+	private long queued;
+	private ScheduledFuture<?> expiry;
+
+	/**
+	 * Returns the executor shared by all instances that were not given an
+	 * executor of their own. Its size defaults to twice the number of cores
+	 * and can be set with the {@code RTA_RESOURCE_THREADS} environment
+	 * variable.
+	 */
+	public static synchronized ExecutorService getSharedExecutor() {
+		if (sharedExecutor == null) {
+			int threads = 2 * Runtime.getRuntime().availableProcessors();
+			if (System.getenv().containsKey(THREADSVAR)) {
+				try {
+					threads = Integer.parseInt(System.getenv(THREADSVAR));
+				} catch (NumberFormatException ex) {
+					LOG.log(Level.WARNING, "ignoring invalid ${0}=''{1}''", new String[]{THREADSVAR, System.getenv(THREADSVAR)});
+				}
+			}
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+					Threads.factory("executable-resource", true));
+			pool.allowCoreThreadTimeOut(true);
+			Metrics.getInstance().gauge("resource.executor.queue", () -> pool.getQueue().size());
+			Metrics.getInstance().gauge("resource.executor.active", pool::getActiveCount);
+			sharedExecutor = pool;
+		}
+		return sharedExecutor;
+	}
+
+	/**
+	 * Replaces the shared executor for instances created afterwards. The
+	 * previous executor is not shut down.
+	 */
+	public static synchronized void setSharedExecutor(ExecutorService executor) {
+		sharedExecutor = executor;
+	}
 
 	public ExecutableResource(ResourceAllocation allocation) {
 		this(allocation, EXPIRE);
 	}
 
 	public ExecutableResource(ResourceAllocation allocation, Completion completion) {
-		this(allocation, completion, Executors.newSingleThreadExecutor());
+		this(allocation, completion, getSharedExecutor());
 		this.externalExecutor = false;
 	}
 
@@ -68,7 +118,7 @@ public abstract class ExecutableResource<T> implements SchedulerListener, Execut
 	}
 		
 	public ExecutableResource(String description, Policy policy, Priority priority, Initiator initiator, long delay, long duration, TimeUnit unit, Completion completion, String... resources) {
-		this(description, policy, priority, initiator, delay, duration, unit, completion, Executors.newSingleThreadExecutor(), resources);
+		this(description, policy, priority, initiator, delay, duration, unit, completion, getSharedExecutor(), resources);
 		this.externalExecutor = false;
 	}
 
@@ -90,7 +140,7 @@ public abstract class ExecutableResource<T> implements SchedulerListener, Execut
 	
 	@Deprecated
 	public ExecutableResource(String description, Policy policy, Priority priority, Initiator initiator, long delay, long duration, Completion completion, String... resources) {
-		this(description, policy, priority, initiator, delay, duration, completion, Executors.newSingleThreadExecutor(), resources);
+		this(description, policy, priority, initiator, delay, duration, completion, getSharedExecutor(), resources);
 		this.externalExecutor = false;
 	}
 
@@ -117,29 +167,119 @@ public abstract class ExecutableResource<T> implements SchedulerListener, Execut
 			LOG.log(Level.FINE, "Cancelling user code execution {0}", interrupt ? "using an interrupt signal" : "");
 			result.cancel(interrupt);
 		}
-		try {
-			remote.removeSchedulerListener(this);
-			if (!externalExecutor) {
-				executor.shutdown();
-				executor.awaitTermination(5000, TimeUnit.MILLISECONDS);
-			}
-		} catch (InterruptedException x) {
-			LOG.log(Level.SEVERE, "Interrupted during executor shutdown", x);
-			Thread.currentThread().interrupt();
+		if (expiry != null) {
+			expiry.cancel(false);
+			expiry = null;
+		}
+		if (renewal != null) {
+			renewal.stop();
 		}
+		remote.removeSchedulerListener(this);
+	}
+
+	/**
+	 * Releases the allocation when its slot ends, without keeping a thread
+	 * waiting. Called again whenever the slot changes.
+	 */
+	private synchronized void armExpiry() {
+		if (this.expiry != null) {
+			this.expiry.cancel(false);
+		}
+		long time = this.remote.getRemainingTime();
+		LOG.log(Level.FINER, "Blocking resource for {0} µs.", time);
+		this.expiry = TimeoutService.getInstance().schedule(() -> {
+			RemoteAllocationService.getPublishPool().execute(() -> {
+				try {
+					LOG.log(Level.FINER, "Releasing resource now.");
+					this.remote.release();
+				} catch (RSBException ex) {
+					LOG.log(Level.WARNING, "Could not release resources at server", ex);
+				}
+			});
+		}, time, TimeUnit.MICROSECONDS);
+	}
+
+	/**
+	 * Hands the user code to the shared executor once the allocation starts,
+	 * so that no shared thread is blocked while waiting for the slot.
+	 */
+	private void submit() {
+		if (this.serial == null) {
+			this.serial = new SerialExecutor(this.executor);
+			this.queued = System.nanoTime();
+			FutureTask<T> task = (FutureTask<T>) this.result;
+			this.serial.execute(() -> {
+				QUEUE_DELAY.recordSince(this.queued);
+				task.run();
+			});
+		}
+	}
+
+	/**
+	 * Extends the slot by {@code increment} whenever less than {@code margin}
+	 * remains, up to a total slot duration of {@code maximum}. Must be called
+	 * before {@link #startup()}.
+	 */
+	public void setAutoRenewal(long increment, long margin, long maximum, TimeUnit unit) {
+		this.renewal = new LeaseRenewal(this.remote, increment, margin, maximum, unit);
+	}
+
+	/**
+	 * Sends the allocation request via the given admission controller instead
+	 * of immediately. Must be called before {@link #startup()}.
+	 */
+	public void setAdmissionController(AdmissionController admission) {
+		this.admission = admission;
 	}
 
 	@Override
 	public void startup() throws RSBException {
-		this.result = executor.submit(this);
+		if (this.renewal != null) {
+			this.renewal.start();
+		}
+		if (this.externalExecutor) {
+			this.result = executor.submit(this);
+		} else {
+			this.result = new FutureTask<>(this);
+		}
 		this.remote.addSchedulerListener(this);
-		this.remote.schedule();
+		if (this.remote.isScheduled() || !this.remote.isAlive()) {
+//			already sent, e.g. by an AllocationBatch, updates may have been missed
+			synchronized (this) {
+				switch (this.remote.getCurrentState()) {
+					case REQUESTED:
+					case SCHEDULED:
+						break;
+					default:
+						if (!this.externalExecutor) {
+							submit();
+						}
+						break;
+				}
+			}
+		} else if (this.admission != null) {
+			this.admission.submit(this.remote);
+		} else {
+			this.remote.schedule();
+		}
+	}
+
+	/**
+	 * Removes the request from the admission queue if it has not been sent
+	 * yet and terminates it locally. Returns {@code false} otherwise.
+	 */
+	public boolean withdraw() {
+		return this.admission != null && this.admission.withdraw(this.remote);
 	}
 
 	@Override
 	public void shutdown() throws RSBException {
 		switch (this.remote.getCurrentState()) {
 			case REQUESTED:
+				if (withdraw()) {
+					break;
+				}
+//			no break -> already sent, cancel at server
 			case SCHEDULED:
 				remote.cancel();
 				break;
@@ -159,7 +299,6 @@ public abstract class ExecutableResource<T> implements SchedulerListener, Execut
 			try {
 				awaitStart:
 				while (!Thread.interrupted()) {
-					this.wait();
 					switch (this.remote.getCurrentState()) {
 						case REQUESTED:
 						case SCHEDULED:
@@ -172,6 +311,7 @@ public abstract class ExecutableResource<T> implements SchedulerListener, Execut
 						case RELEASED:
 							return null;
 					}
+					this.wait();
 				}
 			} catch (InterruptedException ex) {
 				LOG.log(Level.FINE, "Startup interrupted in state " + this.remote.getCurrentState(), ex);
@@ -183,16 +323,17 @@ public abstract class ExecutableResource<T> implements SchedulerListener, Execut
 		try {
 			LOG.log(Level.FINE, "Starting user code execution for {0} µs.", this.remote.getRemainingTime());
 			res = execute();
+			if (this.renewal != null) {
+				this.renewal.stop();
+			}
 			LOG.log(Level.FINE, "User code execution returned with ''{0}''", res);
 			synchronized (this) {
 				switch (completion) {
 					case MONITOR:
-						long time;
-						while ((time = this.remote.getRemainingTime()) > 0 && !Thread.interrupted()) {
-							LOG.log(Level.FINER, "Blocking resource for {0} µs.", time);
-							this.wait(time / 1000, (int) ((time % 1000) * 1000));
+						if (this.remote.isAlive()) {
+							armExpiry();
 						}
-//					no break -> release resource after waiting
+						break;
 					case EXPIRE:
 						try {
 							LOG.log(Level.FINER, "Releasing resource now.");
@@ -240,7 +381,13 @@ public abstract class ExecutableResource<T> implements SchedulerListener, Execut
 			this.notifyAll();
 			switch (allocation.getState()) {
 				case SCHEDULED:
+					break;
 				case ALLOCATED:
+					if (this.expiry != null) {
+						armExpiry();
+					} else if (!this.externalExecutor) {
+						submit();
+					}
 					break;
 				case REJECTED:
 				case CANCELLED:
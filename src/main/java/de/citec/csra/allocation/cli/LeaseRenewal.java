@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.allocation.cli;
+
+import de.citec.csra.util.TimeoutService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import rsb.RSBException;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+
+/**
+ * Extends an allocated slot by a fixed increment shortly before it ends, until
+ * stopped or until the slot reaches the given maximum duration. Renewal also
+ * stops once the server does not grant an extension.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class LeaseRenewal implements SchedulerListener {
+
+	private final static Logger LOG = Logger.getLogger(LeaseRenewal.class.getName());
+	private final RemoteAllocation remote;
+	private final long increment;
+	private final long margin;
+	private final long maximum;
+
+	private ScheduledFuture<?> timer;
+	private long requestedEnd;
+	private boolean active;
+
+	/**
+	 * @param remote the allocation to renew
+	 * @param increment the amount to extend the slot by
+	 * @param margin how long before the end of the slot to extend it
+	 * @param maximum the maximum slot duration, measured from its begin
+	 * @param unit the unit of all given times
+	 */
+	public LeaseRenewal(RemoteAllocation remote, long increment, long margin, long maximum, TimeUnit unit) {
+		this.remote = remote;
+		this.increment = MICROSECONDS.convert(increment, unit);
+		this.margin = MICROSECONDS.convert(margin, unit);
+		this.maximum = MICROSECONDS.convert(maximum, unit);
+	}
+
+	public void start() {
+		synchronized (this) {
+			if (this.active) {
+				return;
+			}
+			this.active = true;
+			this.requestedEnd = 0;
+		}
+		this.remote.addSchedulerListener(this);
+		allocationUpdated(this.remote.getAllocation());
+	}
+
+	public void stop() {
+		synchronized (this) {
+			this.active = false;
+			cancel();
+		}
+		this.remote.removeSchedulerListener(this);
+	}
+
+	@Override
+	public synchronized void allocationUpdated(ResourceAllocation allocation) {
+		if (!this.active) {
+			return;
+		}
+		switch (allocation.getState()) {
+			case ALLOCATED:
+				long end = allocation.getSlot().getEnd().getTime();
+				if (this.requestedEnd != 0 && end < this.requestedEnd) {
+					LOG.log(Level.FINE, "Slot extension not granted, stopping renewal at {0}", end);
+					stop();
+				} else if (end - allocation.getSlot().getBegin().getTime() >= this.maximum) {
+					LOG.log(Level.FINE, "Maximum slot duration reached, stopping renewal");
+					stop();
+				} else {
+					arm();
+				}
+				break;
+			case REQUESTED:
+			case SCHEDULED:
+				break;
+			default:
+				stop();
+				break;
+		}
+	}
+
+	private void arm() {
+		cancel();
+		long delay = Math.max(0, this.remote.getRemainingTime() - this.margin);
+		this.timer = TimeoutService.getInstance().schedule(() -> {
+			RemoteAllocationService.getPublishPool().execute(this::renew);
+		}, delay, MICROSECONDS);
+	}
+
+	private void cancel() {
+		if (this.timer != null) {
+			this.timer.cancel(false);
+			this.timer = null;
+		}
+	}
+
+	private void renew() {
+		long end;
+		synchronized (this) {
+			if (!this.active) {
+				return;
+			}
+			ResourceAllocation allocation = this.remote.getAllocation();
+			long begin = allocation.getSlot().getBegin().getTime();
+			end = Math.min(allocation.getSlot().getEnd().getTime() + this.increment, begin + this.maximum);
+			this.requestedEnd = end;
+		}
+		try {
+			LOG.log(Level.FINER, "Renewing allocation until {0}", end);
+			this.remote.extendTo(end, MICROSECONDS);
+		} catch (RSBException ex) {
+			LOG.log(Level.WARNING, "Could not renew resource allocation", ex);
+		}
+	}
+}
@@ -16,13 +16,11 @@
  */
 package de.citec.csra.allocation.cli;
 
+import de.citec.csra.util.SerialExecutor;
 import java.util.Arrays;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import rsb.RSBException;
-import rsb.util.QueueAdapter;
 import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
 
 /**
@@ -33,64 +31,41 @@ public class MonitoredResource extends AllocationMonitor implements Executable {
 
 	private final static Logger LOG = Logger.getLogger(MonitoredResource.class.getName());
 
-	private final BlockingQueue<ResourceAllocation> incoming;
-	private final QueueAdapter qa;
+	private final SerialExecutor dispatcher;
+	private final SchedulerListener subscriber;
 	private final String[] resources;
-	private boolean alive;
+	private volatile boolean alive;
 
 	public MonitoredResource(String... resources) {
-		this.qa = new QueueAdapter();
-		this.incoming = qa.getQueue();
+		this.dispatcher = new SerialExecutor(RemoteAllocationService.getDispatchPool());
+		this.subscriber = this::dispatch;
 		this.resources = resources;
 	}
 
+	private void dispatch(ResourceAllocation update) {
+		this.dispatcher.execute(() -> {
+			if (alive) {
+				allocationUpdated(update);
+			}
+		});
+	}
+
 	@Override
 	public void startup() throws RSBException {
-		String printStr = Arrays.toString(resources);
-		LOG.log(Level.FINE, "activating resource listener for: ''{0}''", printStr);
-		try {
-			RemoteAllocationService.getInstance().addHandler(qa, true);
-			alive = true;
-		} catch (InterruptedException ex) {
-			LOG.log(Level.SEVERE, "Interrupted during handler addition, shutting down", ex);
-			return;
+		LOG.log(Level.FINE, "activating resource listener for: ''{0}''", Arrays.toString(resources));
+		RemoteAllocationService service = RemoteAllocationService.getInstance();
+		alive = true;
+		for (String resource : resources) {
+			service.addResourceListener(resource, this.subscriber);
 		}
-
-		new Thread(() -> {
-			while (alive) {
-				try {
-					ResourceAllocation update = incoming.poll(2000, TimeUnit.MILLISECONDS);
-					if (update != null) {
-						boolean match = false;
-						search:
-						for (String r : resources) {
-							for (String in : update.getResourceIdsList()) {
-								if (r.equals(in)) {
-									match = true;
-									break search;
-								}
-							}
-						}
-						if (match) {
-							allocationUpdated(update);
-						}
-					}
-				} catch (InterruptedException ex) {
-					LOG.log(Level.SEVERE, "Event dispatching interrupted", ex);
-					Thread.currentThread().interrupt();
-					return;
-				}
-			}
-		}, "resource-listener@" + printStr).start();
 	}
 
 	@Override
 	public void shutdown() throws RSBException {
 		alive = false;
-		try {
-			RemoteAllocationService.getInstance().removeHandler(qa, true);
-		} catch (InterruptedException ex) {
-			LOG.log(Level.SEVERE, "Interrupted during handler removal, ignoring.", ex);
+		RemoteAllocationService service = RemoteAllocationService.getInstance();
+		for (String resource : resources) {
+			service.removeResourceListener(resource, this.subscriber);
 		}
 	}
 }
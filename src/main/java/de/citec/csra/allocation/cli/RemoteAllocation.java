@@ -19,17 +19,25 @@ package de.citec.csra.allocation.cli;
 import static de.citec.csra.rst.util.IntervalUtils.buildRst;
 import static de.citec.csra.rst.util.IntervalUtils.currentTimeInMicros;
 import static de.citec.csra.rst.util.StringRepresentation.shortString;
+import de.citec.csra.util.Counter;
+import de.citec.csra.util.LatencyHistogram;
+import de.citec.csra.util.Metrics;
+import de.citec.csra.util.SerialExecutor;
+import de.citec.csra.util.TimeoutService;
 import java.util.HashSet;
+import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import rsb.RSBException;
-import rsb.util.QueueAdapter;
 import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.Policy;
 import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State;
 import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State.*;
 import rst.timing.IntervalType.Interval;
@@ -43,15 +51,74 @@ public class RemoteAllocation implements Schedulable, Adjustable, TimeAdjustable
 
 	private final static Logger LOG = Logger.getLogger(RemoteAllocation.class.getName());
 
-	private final static long TIMEOUT_US = 1000000;
-	private final QueueAdapter qa;
-	private final BlockingQueue<ResourceAllocation> queue;
+	private final static LatencyHistogram SCHEDULE_LATENCY = Metrics.getInstance().histogram("allocation.latency.scheduled");
+	private final static LatencyHistogram ALLOCATE_LATENCY = Metrics.getInstance().histogram("allocation.latency.allocated");
+	private final static Counter REQUEST_TIMEOUTS = Metrics.getInstance().counter("allocation.timeout.request");
+	private final static Counter SLOT_TIMEOUTS = Metrics.getInstance().counter("allocation.timeout.slot");
+	private final static Counter STATE_TIMEOUTS = Metrics.getInstance().counter("allocation.timeout.state");
+	private final SerialExecutor dispatcher;
+	private final SchedulerListener subscriber;
 	private final HashSet<SchedulerListener> listeners;
 	private final Object monitor = new Object();
+	private final CompletableFuture<ResourceAllocation> scheduled = new CompletableFuture<>();
+	private final CompletableFuture<ResourceAllocation> allocated = new CompletableFuture<>();
+	private final CompletableFuture<ResourceAllocation> terminated = new CompletableFuture<>();
 
 	private ResourceAllocation allocation;
 	private RemoteAllocationService remoteService;
-	private boolean inc;
+	private final Timeout timeout = new Timeout();
+	private final Timeout slotTimeout = new Timeout();
+	private long requested;
+	private long scheduledAt;
+	private boolean predictConflicts;
+	private boolean coalesceSlots;
+	private boolean slotInFlight;
+	private Interval targetSlot;
+	private Interval pendingSlot;
+	private Interval requestedSlot;
+
+	/**
+	 * Timeout of one outstanding request, cancelled by the update answering
+	 * it. All access is guarded by the allocation monitor.
+	 */
+	private final class Timeout {
+
+		private ScheduledFuture<?> future;
+		private long generation;
+		private long sent;
+		private long us;
+
+		private void arm(Runnable expiry) {
+			disarm();
+			long armed = ++this.generation;
+			this.sent = System.nanoTime();
+			this.us = RemoteAllocationService.getRoundTrip().getTimeout(MICROSECONDS);
+			this.future = TimeoutService.getInstance().schedule(() -> {
+				synchronized (monitor) {
+					if (this.future != null && this.generation == armed) {
+						this.future = null;
+						RemoteAllocationService.getRoundTrip().expired();
+						expiry.run();
+					}
+				}
+			}, this.us, MICROSECONDS);
+		}
+
+		private void acknowledge() {
+			if (this.future != null) {
+				disarm();
+				RemoteAllocationService.getRoundTrip().sample(System.nanoTime() - this.sent, NANOSECONDS);
+			}
+		}
+
+		private void disarm() {
+			if (this.future != null) {
+				this.future.cancel(false);
+				this.future = null;
+			}
+			this.generation++;
+		}
+	}
 
 	public RemoteAllocation(ResourceAllocation allocation) {
 		this(ResourceAllocation.newBuilder(allocation));
@@ -67,8 +134,8 @@ public class RemoteAllocation implements Schedulable, Adjustable, TimeAdjustable
 		builder.setState(REQUESTED);
 		this.allocation = builder.build();
 		this.listeners = new HashSet<>();
-		this.qa = new QueueAdapter();
-		this.queue = qa.getQueue();
+		this.dispatcher = new SerialExecutor(RemoteAllocationService.getDispatchPool());
+		this.subscriber = this::dispatch;
 	}
 
 	public boolean hasToken() {
@@ -129,6 +196,31 @@ public class RemoteAllocation implements Schedulable, Adjustable, TimeAdjustable
 		}
 	}
 
+	/**
+	 * If enabled, {@link #schedule()} consults the {@link SlotTimeline} first
+	 * and rejects the request locally when a known reservation of equal or
+	 * higher priority overlaps its slot, without contacting the server. Only
+	 * applies to the PRESERVE policy, the server moves or shortens FIRST and
+	 * MAXIMUM requests instead of rejecting them.
+	 */
+	public void setConflictPrediction(boolean predictConflicts) {
+		this.predictConflicts = predictConflicts;
+	}
+
+	/**
+	 * If enabled, at most one slot change is sent to the server at a time.
+	 * Changes requested while waiting for its answer replace each other and
+	 * only the latest one is sent afterwards. Relative changes refer to the
+	 * latest requested slot.
+	 */
+	public void setSlotCoalescing(boolean coalesceSlots) {
+		this.coalesceSlots = coalesceSlots;
+	}
+
+	public ResourceAllocation getAllocation() {
+		return this.allocation;
+	}
+
 	@Override
 	public State getCurrentState() {
 		return this.allocation.getState();
@@ -152,63 +244,77 @@ public class RemoteAllocation implements Schedulable, Adjustable, TimeAdjustable
 
 	@Override
 	public void schedule() throws RSBException {
+		ResourceAllocation request = prepareSchedule();
+		if (request != null) {
+			try {
+				this.remoteService.update(request);
+			} catch (RSBException ex) {
+				rollbackSchedule();
+				throw ex;
+			}
+		}
+	}
+
+	ResourceAllocation prepareSchedule() throws RSBException {
+		if (this.predictConflicts && this.allocation.getPolicy() == Policy.PRESERVE) {
+			List<ResourceAllocation> conflicts = SlotTimeline.getInstance().predictConflicts(this.allocation);
+			if (!conflicts.isEmpty()) {
+				LOG.log(Level.FINE,
+						"rejecting allocation locally, slot conflicts with {0} known reservations: ''{1}''",
+						new Object[]{conflicts.size(), shortString(this.allocation)});
+				dispatch(ResourceAllocation.newBuilder(this.allocation).setState(REJECTED).build());
+				return null;
+			}
+		}
 		LOG.log(Level.FINE,
 				"resource allocation scheduled by client: ''{0}''",
 				allocation.toString().replaceAll("\n", " "));
 
+		this.requested = System.nanoTime();
+		armTimeout(this.timeout, () -> {
+			REQUEST_TIMEOUTS.increment();
+			State newState = CANCELLED;
+			ResourceAllocation shutdown = ResourceAllocation.newBuilder(this.allocation).setState(newState).build();
+			LOG.log(Level.WARNING,
+					"client allocation request timed out after {0}µs, shutting down ''{1}'' -> ''{2}'' ({3})",
+					new Object[]{
+						this.timeout.us,
+						allocation.getState(),
+						newState,
+						shutdown.toString().replaceAll("\n", " ")});
+			dispatch(shutdown);
+		});
+
+		LOG.log(Level.FINE, "start listening to server updates");
 		synchronized (this.monitor) {
-			this.inc = false;
+			this.remoteService = RemoteAllocationService.getInstance();
+			this.remoteService.subscribe(this.allocation.getId(), this.subscriber);
+			return this.allocation;
 		}
+	}
 
-		new Thread(() -> {
-			LOG.log(Level.FINER, "starting allocation-dispatcher#{0}", allocation.getId());
-			while (isAlive()) {
-				try {
-					ResourceAllocation update = queue.poll(TIMEOUT_US, TimeUnit.MICROSECONDS);
-					if (update != null && update.getId().equals(allocation.getId())) {
-						allocationUpdated(update);
-					}
-				} catch (InterruptedException ex) {
-					LOG.log(Level.SEVERE, "Event dispatching interrupted", ex);
-					Thread.currentThread().interrupt();
-					return;
-				}
-			}
-		}, "allocation-dispatcher#" + allocation.getId()).start();
+	/**
+	 * Whether the request has been sent to the server, possibly as part of an
+	 * {@link AllocationBatch}.
+	 */
+	boolean isScheduled() {
+		synchronized (this.monitor) {
+			return this.remoteService != null;
+		}
+	}
 
-		new Thread(() -> {
-			LOG.log(Level.FINER, "allocation-request-timeout#{0}", this.allocation.getId());
-			try {
-				synchronized (this.monitor) {
-					this.monitor.wait(TIMEOUT_US / 1000, (int) ((TIMEOUT_US % 1000) * 1000));
-					if (!this.inc) {
-						State newState = CANCELLED;
-						ResourceAllocation shutdown = ResourceAllocation.newBuilder(this.allocation).setState(newState).build();
-						LOG.log(Level.WARNING,
-								"client allocation request timed out after {0}µs, shutting down ''{1}'' -> ''{2}'' ({3})",
-								new Object[]{
-									TIMEOUT_US,
-									allocation.getState(),
-									newState,
-									shutdown.toString().replaceAll("\n", " ")});
-						allocationUpdated(shutdown);
-					}
-				}
-			} catch (InterruptedException ex) {
-				LOG.log(Level.SEVERE, "Request timeout interrupted", ex);
-				Thread.currentThread().interrupt();
-			}
-		}, "allocation-request-timeout#" + this.allocation.getId()).start();
-
-		try {
-			LOG.log(Level.FINE, "start listening to server updates");
-			synchronized (this.monitor) {
-				this.remoteService = RemoteAllocationService.getInstance();
-				this.remoteService.addHandler(this.qa, true);
-				this.remoteService.update(this.allocation);
+	/**
+	 * Undoes {@link #prepareSchedule()} for a request that has not been sent,
+	 * so that it may be scheduled again later.
+	 */
+	void rollbackSchedule() {
+		synchronized (this.monitor) {
+			this.timeout.disarm();
+			if (this.remoteService != null) {
+				this.remoteService.unsubscribe(this.allocation.getId(), this.subscriber);
+				this.remoteService = null;
 			}
-		} catch (InterruptedException ex) {
-			LOG.log(Level.SEVERE, "Could not add handler, skipping remote update", ex);
+			this.requested = 0;
 		}
 	}
 
@@ -227,56 +333,77 @@ public class RemoteAllocation implements Schedulable, Adjustable, TimeAdjustable
 		requestState(CANCELLED);
 	}
 
+	private Interval currentSlot() {
+		synchronized (this.monitor) {
+			return this.targetSlot != null ? this.targetSlot : this.allocation.getSlot();
+		}
+	}
+
 	private void requestSlot(Interval interval) throws RSBException {
 		if (isAlive()) {
 			ResourceAllocation request = ResourceAllocation.newBuilder(this.allocation).setSlot(interval).build();
 			if (this.remoteService == null) {
 				this.allocation = request;
 			} else {
+				if (this.coalesceSlots) {
+					synchronized (this.monitor) {
+						this.targetSlot = interval;
+						if (this.slotInFlight) {
+							LOG.log(Level.FINER, "slot change pending, deferring ''{0}''", shortString(interval));
+							this.pendingSlot = interval;
+							return;
+						}
+						this.slotInFlight = true;
+					}
+				}
 				synchronized (this.monitor) {
-					this.inc = false;
+					this.requestedSlot = interval;
 				}
-				new Thread(() -> {
-					try {
-						synchronized (this.monitor) {
-							this.monitor.wait(TIMEOUT_US / 1000, (int) ((TIMEOUT_US % 1000) * 1000));
-							if (isAlive() && !this.inc) {
-								State newState;
-								switch (this.allocation.getState()) {
-									case REQUESTED:
-										newState = State.CANCELLED;
-										break;
-									case SCHEDULED:
-										newState = State.CANCELLED;
-										break;
-									case ALLOCATED:
-									default:
-										newState = State.ABORTED;
-										break;
-								}
-								ResourceAllocation shutdown = ResourceAllocation.newBuilder(this.allocation).setState(newState).build();
-								LOG.log(Level.WARNING,
-										"client slot state change timed out after {0}ms, shutting down ''{1}'' -> ''{2}'' ({3})",
-										new Object[]{
-											TIMEOUT_US,
-											allocation.getState(),
-											newState,
-											shortString(shutdown)});
-								allocationUpdated(shutdown);
-							}
+				armTimeout(this.slotTimeout, () -> {
+					if (isAlive()) {
+						SLOT_TIMEOUTS.increment();
+						State newState;
+						switch (this.allocation.getState()) {
+							case REQUESTED:
+								newState = State.CANCELLED;
+								break;
+							case SCHEDULED:
+								newState = State.CANCELLED;
+								break;
+							case ALLOCATED:
+							default:
+								newState = State.ABORTED;
+								break;
 						}
-					} catch (InterruptedException ex) {
-						LOG.log(Level.SEVERE, "Event dispatching interrupted", ex);
-						Thread.currentThread().interrupt();
+						ResourceAllocation shutdown = ResourceAllocation.newBuilder(this.allocation).setState(newState).build();
+						LOG.log(Level.WARNING,
+								"client slot state change timed out after {0}µs, shutting down ''{1}'' -> ''{2}'' ({3})",
+								new Object[]{
+									this.slotTimeout.us,
+									allocation.getState(),
+									newState,
+									shortString(shutdown)});
+						dispatch(shutdown);
 					}
-				}, "allocation-slot-timeout#" + this.allocation.getId()).start();
+				});
 				LOG.log(Level.FINE,
 						"attempting client allocation slot change ''{0}'' -> ''{1}'' ({2})",
 						new Object[]{
 							shortString(allocation.getSlot()),
 							shortString(interval),
 							shortString(request)});
-				this.remoteService.update(request);
+				try {
+					this.remoteService.update(request);
+				} catch (RSBException ex) {
+					synchronized (this.monitor) {
+						this.slotTimeout.disarm();
+						this.requestedSlot = null;
+						this.slotInFlight = false;
+						this.pendingSlot = null;
+						this.targetSlot = null;
+					}
+					throw ex;
+				}
 			}
 		} else {
 			LOG.log(Level.FINE,
@@ -286,56 +413,95 @@ public class RemoteAllocation implements Schedulable, Adjustable, TimeAdjustable
 	}
 
 	private void requestState(State newState) throws RSBException {
+		ResourceAllocation request = prepareState(newState);
+		if (request != null) {
+			this.remoteService.update(request);
+		}
+	}
+
+	ResourceAllocation prepareState(State newState) {
 		if (isAlive()) {
 			ResourceAllocation request = ResourceAllocation.newBuilder(this.allocation).setState(newState).build();
 			switch (newState) {
 				case ABORTED:
 				case CANCELLED:
 				case RELEASED:
-					synchronized (this.monitor) {
-						this.inc = false;
-					}
-					new Thread(() -> {
-						try {
-							synchronized (this.monitor) {
-								this.monitor.wait(TIMEOUT_US / 1000, (int) ((TIMEOUT_US % 1000) * 1000));
-								if (!this.inc) {
-									LOG.log(Level.WARNING,
-											"client allocation state change timed out after {0}ms, forcing client update ''{1}'' -> ''{2}'' ({3})",
-											new Object[]{
-												TIMEOUT_US,
-												allocation.getState(),
-												newState,
-												request.toString().replaceAll("\n", " ")});
-									allocationUpdated(request);
-								}
-							}
-						} catch (InterruptedException ex) {
-							LOG.log(Level.SEVERE, "Event dispatching interrupted", ex);
-							Thread.currentThread().interrupt();
-						}
-					}, "allocation-state-timeout#" + this.allocation.getId()).start();
+					armTimeout(this.timeout, () -> {
+						STATE_TIMEOUTS.increment();
+						LOG.log(Level.WARNING,
+								"client allocation state change timed out after {0}µs, forcing client update ''{1}'' -> ''{2}'' ({3})",
+								new Object[]{
+									this.timeout.us,
+									allocation.getState(),
+									newState,
+									request.toString().replaceAll("\n", " ")});
+						dispatch(request);
+					});
 					LOG.log(Level.FINE,
 							"attempting client allocation state change ''{0}'' -> ''{1}'' ({2})",
 							new Object[]{
 								allocation.getState(),
 								newState,
 								shortString(request)});
-					this.remoteService.update(request);
-					break;
+					return request;
 				case REJECTED:
 				case ALLOCATED:
 				case SCHEDULED:
 				case REQUESTED:
+				default:
 					LOG.log(Level.WARNING,
 							"Illegal state ({0}) , skipping remote update",
 							newState);
-					break;
+					return null;
 			}
 		} else {
 			LOG.log(Level.FINE,
 					"resource allocation not active anymore ({0}), skipping client allocation state change ({1}) for: ''{2}''",
 					new Object[]{allocation.getState(), newState, shortString(allocation)});
+			return null;
+		}
+	}
+
+	/**
+	 * Ends the allocation on the client side only, e.g. for requests that
+	 * have never been sent.
+	 */
+	void terminate(State state) {
+		dispatch(ResourceAllocation.newBuilder(this.allocation).setState(state).build());
+	}
+
+	private void dispatch(ResourceAllocation update) {
+		this.dispatcher.execute(() -> {
+			if (isAlive()) {
+				allocationUpdated(update);
+			}
+		});
+	}
+
+	private void armTimeout(Timeout t, Runnable expiry) {
+		synchronized (this.monitor) {
+			t.arm(expiry);
+		}
+	}
+
+	/**
+	 * Whether the update answers the latest slot change. The server either
+	 * applies the change or refuses it by resending the allocation in its
+	 * current state, other updates are state transitions.
+	 */
+	private boolean acknowledgesSlot(ResourceAllocation update) {
+		if (this.requestedSlot == null) {
+			return false;
+		}
+		switch (update.getState()) {
+			case REJECTED:
+			case CANCELLED:
+			case ABORTED:
+			case RELEASED:
+				return true;
+			default:
+				return update.getSlot().equals(this.requestedSlot)
+						|| update.getState() == this.allocation.getState();
 		}
 	}
 
@@ -348,10 +514,23 @@ public class RemoteAllocation implements Schedulable, Adjustable, TimeAdjustable
 					update.getState(),
 					shortString(update)});
 
+		Interval nextSlot = null;
 		synchronized (this.monitor) {
+			boolean slotAcknowledged = acknowledgesSlot(update);
 			this.allocation = update;
-			this.inc = true;
-			this.monitor.notifyAll();
+			this.timeout.acknowledge();
+			if (slotAcknowledged) {
+				this.slotTimeout.acknowledge();
+				this.requestedSlot = null;
+				if (this.slotInFlight) {
+					this.slotInFlight = false;
+					nextSlot = this.pendingSlot;
+					this.pendingSlot = null;
+					if (nextSlot == null) {
+						this.targetSlot = null;
+					}
+				}
+			}
 		}
 
 		synchronized (this.listeners) {
@@ -360,14 +539,79 @@ public class RemoteAllocation implements Schedulable, Adjustable, TimeAdjustable
 			});
 		}
 
-		if (!isAlive()) {
-			try {
-				LOG.log(Level.FINE, "stop listening to server updates");
-				this.remoteService.removeHandler(this.qa, true);
-			} catch (InterruptedException | RSBException ex) {
-				LOG.log(Level.SEVERE, "Could not remove handler", ex);
+		if (nextSlot != null) {
+			if (isAlive()) {
+				try {
+					requestSlot(nextSlot);
+				} catch (RSBException ex) {
+					LOG.log(Level.WARNING, "Could not send pending slot change", ex);
+				}
+			} else {
+				synchronized (this.monitor) {
+					this.targetSlot = null;
+				}
 			}
 		}
+
+		if (!isAlive() && this.remoteService != null) {
+			LOG.log(Level.FINE, "stop listening to server updates");
+			this.remoteService.unsubscribe(this.allocation.getId(), this.subscriber);
+		}
+
+		switch (update.getState()) {
+			case ALLOCATED:
+				if (this.requested != 0 && !this.allocated.isDone()) {
+					ALLOCATE_LATENCY.recordSince(this.scheduledAt != 0 ? this.scheduledAt : this.requested);
+				}
+				this.scheduled.complete(update);
+				this.allocated.complete(update);
+				break;
+			case SCHEDULED:
+				if (this.requested != 0 && !this.scheduled.isDone()) {
+					this.scheduledAt = System.nanoTime();
+					SCHEDULE_LATENCY.recordSince(this.requested);
+				}
+				this.scheduled.complete(update);
+				break;
+			case REJECTED:
+			case CANCELLED:
+			case ABORTED:
+			case RELEASED:
+				if (!this.terminated.isDone()) {
+					Metrics.getInstance().counter("allocation.state." + update.getState().name().toLowerCase()).increment();
+				}
+				this.terminated.complete(update);
+				IllegalStateException ex = new IllegalStateException("Allocation ended in state " + update.getState() + ": " + shortString(update));
+				this.scheduled.completeExceptionally(ex);
+				this.allocated.completeExceptionally(ex);
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Completes with the first update in state SCHEDULED or ALLOCATED,
+	 * or exceptionally if the allocation ends before.
+	 */
+	public CompletableFuture<ResourceAllocation> whenScheduled() {
+		return this.scheduled;
+	}
+
+	/**
+	 * Completes with the first update in state ALLOCATED, or exceptionally if
+	 * the allocation ends before.
+	 */
+	public CompletableFuture<ResourceAllocation> whenAllocated() {
+		return this.allocated;
+	}
+
+	/**
+	 * Completes with the update that ends the allocation, i.e. REJECTED,
+	 * CANCELLED, ABORTED or RELEASED.
+	 */
+	public CompletableFuture<ResourceAllocation> whenTerminated() {
+		return this.terminated;
 	}
 
 	@Override
@@ -378,28 +622,31 @@ public class RemoteAllocation implements Schedulable, Adjustable, TimeAdjustable
 	@Override
 	public void shift(long amount, TimeUnit unit) throws RSBException {
 		amount = MICROSECONDS.convert(amount, unit);
-		long newBegin = this.allocation.getSlot().getBegin().getTime() + amount;
-		long newEnd = this.allocation.getSlot().getEnd().getTime() + amount;
+		Interval slot = currentSlot();
+		long newBegin = slot.getBegin().getTime() + amount;
+		long newEnd = slot.getEnd().getTime() + amount;
 		requestSlot(buildRst(newBegin, newEnd, MICROSECONDS));
 	}
 
 	@Override
 	public void shiftTo(long timestamp, TimeUnit unit) throws RSBException {
+		Interval slot = currentSlot();
 		long newBegin = MICROSECONDS.convert(timestamp, unit);
-		long newEnd = newBegin + this.allocation.getSlot().getEnd().getTime() - this.allocation.getSlot().getBegin().getTime();
+		long newEnd = newBegin + slot.getEnd().getTime() - slot.getBegin().getTime();
 		requestSlot(buildRst(newBegin, newEnd, MICROSECONDS));
 	}
 
 	@Override
 	public void extend(long amount, TimeUnit unit) throws RSBException {
-		long newBegin = this.allocation.getSlot().getBegin().getTime();
-		long newEnd = this.allocation.getSlot().getEnd().getTime() + MICROSECONDS.convert(amount, unit);
+		Interval slot = currentSlot();
+		long newBegin = slot.getBegin().getTime();
+		long newEnd = slot.getEnd().getTime() + MICROSECONDS.convert(amount, unit);
 		requestSlot(buildRst(newBegin, newEnd, MICROSECONDS));
 	}
 
 	@Override
 	public void extendTo(long timestamp, TimeUnit unit) throws RSBException {
-		long newBegin = this.allocation.getSlot().getBegin().getTime();
+		long newBegin = currentSlot().getBegin().getTime();
 		long newEnd = MICROSECONDS.convert(timestamp, unit);
 		requestSlot(buildRst(newBegin, newEnd, MICROSECONDS));
 	}
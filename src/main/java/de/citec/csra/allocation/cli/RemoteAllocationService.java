@@ -16,10 +16,32 @@
  */
 package de.citec.csra.allocation.cli;
 
+import de.citec.csra.util.Metrics;
+import de.citec.csra.util.RttEstimator;
+import de.citec.csra.util.Threads;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import rsb.AbstractEventHandler;
+import rsb.Event;
 import rsb.Factory;
 import rsb.Handler;
+import rsb.InitializeException;
 import rsb.Informer;
 import rsb.Listener;
 import rsb.RSBException;
@@ -38,7 +60,14 @@ public class RemoteAllocationService {
 
 	private final static String SCOPEVAR = "SCOPE_ALLOCATION";
 	private final static String FALLBACK = "/coordination/allocation/";
+	private final static int DISPATCH_THREADS = Runtime.getRuntime().availableProcessors();
 	private static String scope;
+	private static ThreadPoolExecutor dispatchPool;
+	private static ThreadPoolExecutor publishPool;
+	private static AllocationScheduler localScheduler;
+	private static RttEstimator roundTrip;
+	private static long timeoutFloor = 100000;
+	private static long timeoutCeiling = 10000000;
 
 	static {
 		DefaultConverterRepository.getDefaultConverterRepository()
@@ -57,58 +86,250 @@ public class RemoteAllocationService {
 		return scope;
 	}
 
+	static synchronized Executor getDispatchPool() {
+		if (dispatchPool == null) {
+			dispatchPool = new ThreadPoolExecutor(DISPATCH_THREADS, DISPATCH_THREADS, 0, MILLISECONDS, new LinkedBlockingQueue<>(),
+					Threads.factory("allocation-dispatcher", true));
+			Metrics.getInstance().gauge("allocation.dispatch.queue", () -> dispatchPool.getQueue().size());
+		}
+		return dispatchPool;
+	}
+
+	/**
+	 * Executor for timer-driven work that publishes requests, e.g. releases
+	 * or renewals. The dispatch pool only delivers updates and must not wait
+	 * for the network.
+	 */
+	static synchronized Executor getPublishPool() {
+		if (publishPool == null) {
+			publishPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, SECONDS, new SynchronousQueue<>(),
+					Threads.factory("allocation-publisher", true));
+		}
+		return publishPool;
+	}
+
+	/**
+	 * Returns the round-trip estimator for requests at {@link #getScope()}.
+	 * Client-side request timeouts are derived from it.
+	 */
+	public static synchronized RttEstimator getRoundTrip() {
+		if (roundTrip == null) {
+			roundTrip = new RttEstimator(1000000, timeoutFloor, timeoutCeiling, MICROSECONDS);
+			Metrics.getInstance().gauge("allocation.rtt.smoothed@" + getScope(), () -> roundTrip.getSmoothed(MICROSECONDS));
+			Metrics.getInstance().gauge("allocation.rtt.timeout@" + getScope(), () -> roundTrip.getTimeout(MICROSECONDS));
+		}
+		return roundTrip;
+	}
+
+	/**
+	 * Limits the request timeouts derived from the observed round-trip time.
+	 * Resets the estimation.
+	 */
+	public static synchronized void setTimeoutBounds(long floor, long ceiling, TimeUnit unit) {
+		timeoutFloor = MICROSECONDS.convert(floor, unit);
+		timeoutCeiling = MICROSECONDS.convert(ceiling, unit);
+		if (roundTrip != null) {
+			roundTrip = new RttEstimator(roundTrip.getTimeout(MICROSECONDS), timeoutFloor, timeoutCeiling, MICROSECONDS);
+		}
+	}
+
+	/**
+	 * Makes subsequently created service instances talk to the given
+	 * in-process scheduler instead of the allocation server at
+	 * {@link #getScope()}. Passing {@code null} restores remote operation.
+	 * An already existing instance is not affected until it is shut down.
+	 */
+	public static synchronized void setLocalScheduler(AllocationScheduler scheduler) {
+		if (instance != null) {
+			LOG.log(Level.WARNING, "Local scheduler changed while service is active, shut down the service to apply.");
+		}
+		localScheduler = scheduler;
+	}
+
 	private static RemoteAllocationService instance;
 	private final static Logger LOG = Logger.getLogger(RemoteAllocationService.class.getName());
 
 	private final Informer informer;
 	private final Listener listener;
+	private final AllocationScheduler scheduler;
+	private final SchedulerListener sink = this::dispatch;
+	private final Map<String, SchedulerListener> subscribers = new ConcurrentHashMap<>();
+	private final Map<String, Set<SchedulerListener>> resourceListeners = new ConcurrentHashMap<>();
+	private final Set<SchedulerListener> allocationListeners = new CopyOnWriteArraySet<>();
+	private final Handler dispatcher = new AbstractEventHandler() {
+		@Override
+		public void handleEvent(Event event) {
+			if (event.getData() instanceof ResourceAllocation) {
+				dispatch((ResourceAllocation) event.getData());
+			}
+		}
+	};
 
 	public static synchronized RemoteAllocationService getInstance() throws RSBException {
 		if (instance == null) {
-			instance = new RemoteAllocationService();
+			instance = new RemoteAllocationService(localScheduler);
 		}
 		return instance;
 	}
 
-	private RemoteAllocationService() throws RSBException {
-		this.informer = Factory.getInstance().createInformer(getScope());
-		this.listener = Factory.getInstance().createListener(getScope());
-		this.listener.addFilter(new OriginFilter(this.informer.getId(), true));
-		this.listener.activate();
-		this.informer.activate();
+	private RemoteAllocationService(AllocationScheduler scheduler) throws RSBException {
+		this.scheduler = scheduler;
+		if (scheduler != null) {
+			LOG.log(Level.INFO, "using local allocation scheduler ''{0}''", scheduler);
+			this.informer = null;
+			this.listener = null;
+			scheduler.addSchedulerListener(this.sink);
+		} else {
+			this.informer = Factory.getInstance().createInformer(getScope());
+			this.listener = Factory.getInstance().createListener(getScope());
+			this.listener.addFilter(new OriginFilter(this.informer.getId(), true));
+			try {
+				this.listener.addHandler(this.dispatcher, false);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InitializeException("Interrupted during dispatcher registration", ex);
+			}
+			this.listener.activate();
+			this.informer.activate();
+		}
+		Metrics.getInstance().gauge("allocation.subscribers", this.subscribers::size);
 	}
 
 	public void update(ResourceAllocation allocation) throws RSBException {
+		if (this.scheduler != null) {
+			this.scheduler.request(allocation);
+			return;
+		}
 		synchronized (this.informer) {
 			this.informer.publish(allocation);
 		}
 	}
 
+	public void update(Collection<ResourceAllocation> allocations) throws RSBException {
+		if (this.scheduler != null) {
+			allocations.forEach(this.scheduler::request);
+			return;
+		}
+		synchronized (this.informer) {
+			for (ResourceAllocation allocation : allocations) {
+				this.informer.publish(allocation);
+			}
+		}
+	}
+
+	void dispatch(ResourceAllocation update) {
+		SchedulerListener subscriber = this.subscribers.get(update.getId());
+		if (subscriber != null) {
+			subscriber.allocationUpdated(update);
+		}
+		if (!this.resourceListeners.isEmpty()) {
+			dispatchResources(update);
+		}
+		this.allocationListeners.forEach((l) -> l.allocationUpdated(update));
+	}
+
+	private void dispatchResources(ResourceAllocation update) {
+		List<String> resources = update.getResourceIdsList();
+		if (resources.size() == 1) {
+			Set<SchedulerListener> ls = this.resourceListeners.get(resources.get(0));
+			if (ls != null) {
+				ls.forEach((l) -> l.allocationUpdated(update));
+			}
+		} else {
+			Set<SchedulerListener> notified = null;
+			for (String resource : resources) {
+				Set<SchedulerListener> ls = this.resourceListeners.get(resource);
+				if (ls != null) {
+					if (notified == null) {
+						notified = Collections.newSetFromMap(new IdentityHashMap<>());
+					}
+					for (SchedulerListener l : ls) {
+						if (notified.add(l)) {
+							l.allocationUpdated(update);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	public void subscribe(String id, SchedulerListener subscriber) {
+		SchedulerListener previous = this.subscribers.put(id, subscriber);
+		if (previous != null && previous != subscriber) {
+			LOG.log(Level.WARNING, "Replaced existing subscriber for allocation ''{0}''", id);
+		}
+	}
+
+	public void unsubscribe(String id, SchedulerListener subscriber) {
+		this.subscribers.remove(id, subscriber);
+	}
+
+	public void addAllocationListener(SchedulerListener listener) {
+		this.allocationListeners.add(listener);
+	}
+
+	public void removeAllocationListener(SchedulerListener listener) {
+		this.allocationListeners.remove(listener);
+	}
+
+	public void addResourceListener(String resource, SchedulerListener listener) {
+		this.resourceListeners.compute(resource, (r, ls) -> {
+			if (ls == null) {
+				ls = new CopyOnWriteArraySet<>();
+			}
+			ls.add(listener);
+			return ls;
+		});
+	}
+
+	public void removeResourceListener(String resource, SchedulerListener listener) {
+		this.resourceListeners.computeIfPresent(resource, (r, ls) -> {
+			ls.remove(listener);
+			return ls.isEmpty() ? null : ls;
+		});
+	}
+
 	public void addHandler(Handler handler, boolean wait) throws InterruptedException, RSBException {
+		if (this.listener == null) {
+			throw new RSBException("No rsb listener available when using a local scheduler");
+		}
 		synchronized (this.listener) {
 			this.listener.addHandler(handler, wait);
 		}
 	}
 
 	public void removeHandler(Handler handler, boolean wait) throws InterruptedException, RSBException {
+		if (this.listener == null) {
+			return;
+		}
 		synchronized (this.listener) {
 			this.listener.removeHandler(handler, wait);
 		}
 	}
 
 	public void shutdown() throws RSBException, InterruptedException {
-		for (int i = 0; i < 100 && !this.listener.getHandlers().isEmpty(); i++) {
+		for (int i = 0; i < 100 && hasActiveListeners(); i++) {
 			Thread.sleep(10);
 		}
-		if (!this.listener.getHandlers().isEmpty()) {
+		if (hasActiveListeners()) {
 			LOG.log(Level.WARNING, "Shutting down although there may still be active listener threads");
 		}
 		shutdownNow();
 	}
 
+	private boolean hasActiveListeners() {
+		return !this.subscribers.isEmpty()
+				|| !this.resourceListeners.isEmpty()
+				|| (this.listener != null && this.listener.getHandlers().size() > 1);
+	}
+
 	public void shutdownNow() throws RSBException, InterruptedException {
-		this.informer.deactivate();
-		this.listener.deactivate();
+		if (this.scheduler != null) {
+			this.scheduler.removeSchedulerListener(this.sink);
+		} else {
+			this.informer.deactivate();
+			this.listener.deactivate();
+		}
 		instance = null;
 	}
 
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.allocation.cli;
+
+import static de.citec.csra.rst.util.IntervalUtils.buildRst;
+import static de.citec.csra.rst.util.IntervalUtils.currentTimeInMicros;
+import de.citec.csra.util.IntervalTree;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import rsb.RSBException;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.Priority;
+import rst.timing.IntervalType.Interval;
+
+/**
+ * Client-side timeline of the scheduled and allocated slots of every resource,
+ * built from the updates observed at the allocation scope. It is used to
+ * predict conflicts of new requests and to find free windows before asking
+ * the server. Predictions are only as good as the updates seen since the
+ * timeline was created.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class SlotTimeline implements SchedulerListener {
+
+	private static SlotTimeline instance;
+
+	private final Map<String, IntervalTree<ResourceAllocation>> timelines = new ConcurrentHashMap<>();
+	private final Map<String, ResourceAllocation> known = new ConcurrentHashMap<>();
+	private RemoteAllocationService service;
+
+	public static synchronized SlotTimeline getInstance() throws RSBException {
+		if (instance == null) {
+			instance = new SlotTimeline();
+		}
+		RemoteAllocationService current = RemoteAllocationService.getInstance();
+		if (instance.service != current) {
+			instance.service = current;
+			current.addAllocationListener(instance);
+		}
+		return instance;
+	}
+
+	private SlotTimeline() {
+	}
+
+	@Override
+	public void allocationUpdated(ResourceAllocation allocation) {
+		String id = allocation.getId();
+		ResourceAllocation previous;
+		switch (allocation.getState()) {
+			case SCHEDULED:
+			case ALLOCATED:
+				previous = this.known.put(id, allocation);
+				ResourceAllocation update = allocation;
+				long now = currentTimeInMicros();
+				for (String resource : allocation.getResourceIdsList()) {
+					this.timelines.compute(resource, (r, timeline) -> {
+						if (timeline == null) {
+							timeline = new IntervalTree<>();
+						}
+						prune(timeline, now);
+						timeline.put(id, begin(update), end(update), update);
+						return timeline;
+					});
+				}
+				break;
+			default:
+				previous = this.known.remove(id);
+				allocation = null;
+				break;
+		}
+		if (previous != null) {
+			for (String resource : previous.getResourceIdsList()) {
+				if (allocation == null || !allocation.getResourceIdsList().contains(resource)) {
+					this.timelines.computeIfPresent(resource, (r, timeline) -> {
+						timeline.remove(id);
+						return timeline.isEmpty() ? null : timeline;
+					});
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the known reservations of equal or higher priority that overlap
+	 * the slot of the given request on any of its resources.
+	 */
+	public List<ResourceAllocation> predictConflicts(ResourceAllocation request) {
+		return reservations(request.getResourceIdsList(), begin(request), end(request), request.getPriority(), request.getId());
+	}
+
+	public boolean isFree(Collection<String> resources, long begin, long end, TimeUnit unit) {
+		return reservations(resources, MICROSECONDS.convert(begin, unit), MICROSECONDS.convert(end, unit), null, null).isEmpty();
+	}
+
+	public Interval earliestFreeWindow(Collection<String> resources, long duration, TimeUnit unit) {
+		return earliestFreeWindow(resources, null, currentTimeInMicros(), MICROSECONDS.convert(duration, unit));
+	}
+
+	/**
+	 * Finds the earliest window of the given length, starting no earlier than
+	 * {@code notBefore}, in which none of the resources holds a reservation
+	 * of at least the given priority. A {@code null} priority considers all
+	 * reservations. Times are given in microseconds.
+	 */
+	public Interval earliestFreeWindow(Collection<String> resources, Priority priority, long notBefore, long duration) {
+		long begin = Math.max(notBefore, currentTimeInMicros());
+		while (true) {
+			List<ResourceAllocation> blocking = reservations(resources, begin, begin + duration, priority, null);
+			if (blocking.isEmpty()) {
+				return buildRst(begin, begin + duration, MICROSECONDS);
+			}
+			for (ResourceAllocation a : blocking) {
+				begin = Math.max(begin, end(a));
+			}
+		}
+	}
+
+	private List<ResourceAllocation> reservations(Collection<String> resources, long begin, long end, Priority priority, String ignore) {
+		long now = currentTimeInMicros();
+		Map<String, ResourceAllocation> found = new LinkedHashMap<>();
+		for (String resource : resources) {
+			List<ResourceAllocation> overlapping = new ArrayList<>();
+			this.timelines.computeIfPresent(resource, (r, timeline) -> {
+				prune(timeline, now);
+				overlapping.addAll(timeline.overlapping(Math.max(begin, now), end));
+				return timeline.isEmpty() ? null : timeline;
+			});
+			for (ResourceAllocation a : overlapping) {
+				if (!a.getId().equals(ignore) && (priority == null || a.getPriority().compareTo(priority) >= 0)) {
+					found.put(a.getId(), a);
+				}
+			}
+		}
+		return new ArrayList<>(found.values());
+	}
+
+	/**
+	 * Drops reservations that have already ended. Timelines are only accessed
+	 * within the compute methods of the map, which serialize access per
+	 * resource and remove timelines that became empty.
+	 */
+	private void prune(IntervalTree<ResourceAllocation> timeline, long now) {
+		for (String id : timeline.removeEndingBefore(now)) {
+			this.known.computeIfPresent(id, (k, a) -> end(a) <= now ? null : a);
+		}
+	}
+
+	private static long begin(ResourceAllocation allocation) {
+		return allocation.getSlot().getBegin().getTime();
+	}
+
+	private static long end(ResourceAllocation allocation) {
+		return allocation.getSlot().getEnd().getTime();
+	}
+}
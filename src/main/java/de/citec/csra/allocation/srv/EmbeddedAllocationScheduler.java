@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.allocation.srv;
+
+import de.citec.csra.allocation.cli.AllocationScheduler;
+import de.citec.csra.allocation.cli.SchedulerListener;
+import de.citec.csra.util.Threads;
+import static de.citec.csra.rst.util.IntervalUtils.buildRst;
+import static de.citec.csra.rst.util.IntervalUtils.currentTimeInMicros;
+import static de.citec.csra.rst.util.StringRepresentation.shortString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State.*;
+import rst.timing.IntervalType.Interval;
+
+/**
+ * In-process implementation of the allocation server for co-located
+ * deployments and tests. Install it with
+ * {@link de.citec.csra.allocation.cli.RemoteAllocationService#setLocalScheduler}.
+ * <p>
+ * A request conflicts with every live allocation that shares a resource and
+ * overlaps its slot. Conflicting allocations of lower priority are cancelled
+ * (or aborted when already allocated). Conflicts of equal or higher priority
+ * are resolved according to the request's policy: {@code FIRST} moves the
+ * slot to the earliest free window of the same length, {@code MAXIMUM}
+ * shortens it to the free part at its beginning, any other policy rejects
+ * the request. Scheduled allocations become allocated at the beginning of
+ * their slot and are released at its end.
+ * <p>
+ * All requests and timers are processed by a single thread, updates are
+ * passed to listeners on that thread.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class EmbeddedAllocationScheduler implements AllocationScheduler {
+
+	private final static Logger LOG = Logger.getLogger(EmbeddedAllocationScheduler.class.getName());
+
+	private final ScheduledExecutorService executor;
+	private final Map<String, Entry> allocations = new HashMap<>();
+	private final Map<String, Set<Entry>> resources = new HashMap<>();
+	private final Set<SchedulerListener> listeners = new CopyOnWriteArraySet<>();
+
+	private static class Entry {
+
+		private ResourceAllocation allocation;
+		private ScheduledFuture<?> begin;
+		private ScheduledFuture<?> end;
+
+		private Entry(ResourceAllocation allocation) {
+			this.allocation = allocation;
+		}
+
+		private long begin() {
+			return this.allocation.getSlot().getBegin().getTime();
+		}
+
+		private long end() {
+			return this.allocation.getSlot().getEnd().getTime();
+		}
+	}
+
+	public EmbeddedAllocationScheduler() {
+		this.executor = Executors.newSingleThreadScheduledExecutor(Threads.factory("embedded-allocation-scheduler", true));
+	}
+
+	@Override
+	public void request(ResourceAllocation allocation) {
+		this.executor.execute(() -> handle(allocation));
+	}
+
+	@Override
+	public void addSchedulerListener(SchedulerListener listener) {
+		this.listeners.add(listener);
+	}
+
+	@Override
+	public void removeSchedulerListener(SchedulerListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	private void handle(ResourceAllocation request) {
+		Entry entry = this.allocations.get(request.getId());
+		if (entry == null) {
+			if (request.getState() == REQUESTED) {
+				schedule(request);
+			} else {
+				LOG.log(Level.FINE, "ignoring update of unknown allocation ''{0}''", shortString(request));
+			}
+			return;
+		}
+		switch (request.getState()) {
+			case CANCELLED:
+			case ABORTED:
+			case RELEASED:
+				terminate(entry, request.getState());
+				break;
+			default:
+				if (request.getState() == entry.allocation.getState()) {
+					reschedule(entry, request.getSlot());
+				} else {
+					LOG.log(Level.WARNING, "illegal state change ''{0}'' -> ''{1}'', resending ''{2}''",
+							new Object[]{entry.allocation.getState(), request.getState(), shortString(entry.allocation)});
+					publish(entry.allocation);
+				}
+				break;
+		}
+	}
+
+	private void schedule(ResourceAllocation request) {
+		Interval slot = request.getSlot().getEnd().getTime() > currentTimeInMicros() ? fit(request, request.getSlot()) : null;
+		if (slot == null) {
+			LOG.log(Level.FINE, "rejecting ''{0}''", shortString(request));
+			publish(ResourceAllocation.newBuilder(request).setState(REJECTED).build());
+			return;
+		}
+		Entry entry = new Entry(ResourceAllocation.newBuilder(request).setSlot(slot).setState(SCHEDULED).build());
+		preempt(entry.allocation);
+		this.allocations.put(request.getId(), entry);
+		for (String resource : request.getResourceIdsList()) {
+			this.resources.computeIfAbsent(resource, (r) -> new LinkedHashSet<>()).add(entry);
+		}
+		publish(entry.allocation);
+		arm(entry);
+	}
+
+	private void reschedule(Entry entry, Interval slot) {
+		long begin = slot.getBegin().getTime();
+		long end = slot.getEnd().getTime();
+		if (end <= currentTimeInMicros() || !conflicts(entry.allocation, begin, end, true).isEmpty()) {
+			LOG.log(Level.FINE, "refusing slot change to ''{0}'' for ''{1}''", new Object[]{shortString(slot), shortString(entry.allocation)});
+			publish(entry.allocation);
+			return;
+		}
+		entry.allocation = ResourceAllocation.newBuilder(entry.allocation).setSlot(slot).build();
+		preempt(entry.allocation);
+		publish(entry.allocation);
+		arm(entry);
+	}
+
+	private void terminate(Entry entry, State state) {
+		cancelTimers(entry);
+		entry.allocation = ResourceAllocation.newBuilder(entry.allocation).setState(state).build();
+		this.allocations.remove(entry.allocation.getId());
+		for (String resource : entry.allocation.getResourceIdsList()) {
+			Set<Entry> entries = this.resources.get(resource);
+			if (entries != null) {
+				entries.remove(entry);
+				if (entries.isEmpty()) {
+					this.resources.remove(resource);
+				}
+			}
+		}
+		publish(entry.allocation);
+	}
+
+	private void arm(Entry entry) {
+		cancelTimers(entry);
+		long now = currentTimeInMicros();
+		if (entry.allocation.getState() == SCHEDULED) {
+			entry.begin = this.executor.schedule(() -> {
+				if (entry.allocation.getState() == SCHEDULED) {
+					entry.allocation = ResourceAllocation.newBuilder(entry.allocation).setState(ALLOCATED).build();
+					publish(entry.allocation);
+				}
+			}, Math.max(0, entry.begin() - now), MICROSECONDS);
+		}
+		entry.end = this.executor.schedule(() -> {
+			if (this.allocations.get(entry.allocation.getId()) == entry) {
+				terminate(entry, RELEASED);
+			}
+		}, Math.max(0, entry.end() - now), MICROSECONDS);
+	}
+
+	private void cancelTimers(Entry entry) {
+		if (entry.begin != null) {
+			entry.begin.cancel(false);
+			entry.begin = null;
+		}
+		if (entry.end != null) {
+			entry.end.cancel(false);
+			entry.end = null;
+		}
+	}
+
+	private void preempt(ResourceAllocation allocation) {
+		long begin = allocation.getSlot().getBegin().getTime();
+		long end = allocation.getSlot().getEnd().getTime();
+		for (Entry other : conflicts(allocation, begin, end, false)) {
+			LOG.log(Level.FINE, "preempting ''{0}'' in favor of ''{1}''", new Object[]{shortString(other.allocation), shortString(allocation)});
+			terminate(other, other.allocation.getState() == ALLOCATED ? ABORTED : CANCELLED);
+		}
+	}
+
+	private Interval fit(ResourceAllocation request, Interval slot) {
+		long begin = slot.getBegin().getTime();
+		long end = slot.getEnd().getTime();
+		List<Entry> blocking = conflicts(request, begin, end, true);
+		if (blocking.isEmpty()) {
+			return slot;
+		}
+		switch (request.getPolicy()) {
+			case FIRST:
+				return firstFree(request, begin, end - begin);
+			case MAXIMUM:
+				long limit = end;
+				for (Entry other : blocking) {
+					if (other.begin() <= begin) {
+						return null;
+					}
+					limit = Math.min(limit, other.begin());
+				}
+				return buildRst(begin, limit, MICROSECONDS);
+			default:
+				return null;
+		}
+	}
+
+	private Interval firstFree(ResourceAllocation request, long begin, long duration) {
+		TreeSet<Long> candidates = new TreeSet<>();
+		candidates.add(begin);
+		for (String resource : request.getResourceIdsList()) {
+			for (Entry other : this.resources.getOrDefault(resource, Collections.emptySet())) {
+				if (other.end() > begin && blocks(other.allocation, request)) {
+					candidates.add(other.end());
+				}
+			}
+		}
+		for (long candidate : candidates) {
+			if (conflicts(request, candidate, candidate + duration, true).isEmpty()) {
+				return buildRst(candidate, candidate + duration, MICROSECONDS);
+			}
+		}
+		return null;
+	}
+
+	private List<Entry> conflicts(ResourceAllocation allocation, long begin, long end, boolean blocking) {
+		List<Entry> conflicts = new ArrayList<>();
+		for (String resource : allocation.getResourceIdsList()) {
+			for (Entry other : this.resources.getOrDefault(resource, Collections.emptySet())) {
+				if (!other.allocation.getId().equals(allocation.getId())
+						&& other.begin() < end && other.end() > begin
+						&& blocks(other.allocation, allocation) == blocking
+						&& !conflicts.contains(other)) {
+					conflicts.add(other);
+				}
+			}
+		}
+		return conflicts;
+	}
+
+	private static boolean blocks(ResourceAllocation existing, ResourceAllocation request) {
+		return existing.getPriority().compareTo(request.getPriority()) >= 0;
+	}
+
+	private void publish(ResourceAllocation allocation) {
+		this.listeners.forEach((l) -> l.allocationUpdated(allocation));
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + this.allocations.size() + " live allocations]";
+	}
+}
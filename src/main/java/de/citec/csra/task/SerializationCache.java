@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.task;
+
+import de.citec.csra.rst.util.SerializationService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import rsb.InitializeException;
+
+/**
+ * Bounded, least recently used cache of serialization services, shared by all
+ * task proxies. Services are looked up by payload type when sending and by
+ * wire schema when receiving.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class SerializationCache {
+
+	private final static int CAPACITY = 128;
+	private static SerializationCache instance;
+
+	private final Map<Class<?>, SerializationService> byType = lru();
+	private final Map<String, SerializationService> bySchema = lru();
+
+	public static synchronized SerializationCache getInstance() {
+		if (instance == null) {
+			instance = new SerializationCache();
+		}
+		return instance;
+	}
+
+	private SerializationCache() {
+	}
+
+	private static <K> Map<K, SerializationService> lru() {
+		return new LinkedHashMap<K, SerializationService>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, SerializationService> eldest) {
+				return size() > CAPACITY;
+			}
+		};
+	}
+
+	/**
+	 * Creates the services for the given payload types in advance.
+	 */
+	public void register(Class<?>... types) throws InitializeException {
+		for (Class<?> type : types) {
+			forType(type);
+		}
+	}
+
+	public synchronized SerializationService forType(Class<?> type) throws InitializeException {
+		SerializationService service = this.byType.get(type);
+		if (service == null) {
+			service = new SerializationService<>(type);
+			this.byType.put(type, service);
+			this.bySchema.put(service.getSchema().toStringUtf8(), service);
+		}
+		return service;
+	}
+
+	public synchronized SerializationService forSchema(String schema) {
+		SerializationService service = this.bySchema.get(schema);
+		if (service == null) {
+			service = new SerializationService(schema);
+			this.bySchema.put(schema, service);
+		}
+		return service;
+	}
+}
@@ -22,26 +22,22 @@ import static de.citec.csra.rst.util.SerializationService.EMPTY;
 import static de.citec.csra.rst.util.SerializationService.UTF8;
 import static de.citec.csra.rst.util.StringRepresentation.shortString;
 import de.citec.csra.task.cli.TaskListener;
-import java.util.HashSet;
+import de.citec.csra.util.SerialExecutor;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import rsb.Event;
 import rsb.EventId;
-import rsb.Factory;
-import rsb.FilteringHandler;
 import rsb.Informer;
 import rsb.InitializeException;
-import rsb.Listener;
 import rsb.RSBException;
 import rsb.Scope;
 import rsb.converter.DefaultConverterRepository;
 import rsb.converter.ProtocolBufferConverter;
-import rsb.filter.OriginFilter;
-import rsb.util.QueueAdapter;
 import rst.communicationpatterns.TaskStateType.TaskState;
+import rst.communicationpatterns.TaskStateType.TaskState.Origin;
 import static rst.communicationpatterns.TaskStateType.TaskState.Origin.HANDLER;
 import static rst.communicationpatterns.TaskStateType.TaskState.Origin.SUBMITTER;
 import rst.communicationpatterns.TaskStateType.TaskState.State;
@@ -59,31 +55,34 @@ public class TaskProxy {
 
 	private final static Logger LOG = Logger.getLogger(TaskProxy.class.getName());
 	private final Informer informer;
-	private final Listener listener;
-	private BlockingQueue<TaskState> queue;
-	private boolean active;
+	private final Object monitor = new Object();
+	private final SerialExecutor dispatcher = new SerialExecutor(TaskScopeHub.getDispatchPool());
+	private final Consumer<Event> route = this::receive;
+	private TaskScopeHub hub;
+	private volatile boolean active;
+	private boolean compat;
 	private final TaskState.Builder task;
-	private final Set<TaskListener> listeners = new HashSet<>();
+	private final Origin origin;
+	private final Set<TaskListener> listeners = new CopyOnWriteArraySet<>();
 	private EventId causeId;
 	private final Scope scope;
-	private SerializationService sservice;
 	private final boolean foreignInformer;
 
 	public TaskProxy(String scope) throws InitializeException {
 		this.causeId = null;
 		this.scope = new Scope(scope);
-		this.informer = Factory.getInstance().createInformer(scope);
-		this.listener = Factory.getInstance().createListener(scope);
+		this.informer = null;
 		this.foreignInformer = false;
+		this.origin = SUBMITTER;
 		this.task = TaskState.newBuilder().setOrigin(SUBMITTER).setSerial(-1);
 	}
 
 	public TaskProxy(TaskState original, Event cause) throws InitializeException {
 		this.causeId = cause.getId();
 		this.scope = cause.getScope();
-		this.informer = Factory.getInstance().createInformer(cause.getScope());
-		this.listener = Factory.getInstance().createListener(cause.getScope());
+		this.informer = null;
 		this.foreignInformer = false;
+		this.origin = HANDLER;
 		this.task = TaskState.newBuilder(original).setOrigin(HANDLER);
 	}
 
@@ -91,8 +90,8 @@ public class TaskProxy {
 		this.causeId = cause.getId();
 		this.informer = informer;
 		this.scope = cause.getScope();
-		this.listener = Factory.getInstance().createListener(cause.getScope());
 		this.foreignInformer = true;
+		this.origin = HANDLER;
 		this.task = TaskState.newBuilder(original).setOrigin(HANDLER);
 	}
 
@@ -100,68 +99,59 @@ public class TaskProxy {
 		activate(false);
 	}
 
+	/**
+	 * Attaches to the shared listener/informer pair of the scope. In compat
+	 * mode all task updates at the scope are received, not only those caused
+	 * by this task.
+	 */
 	public void activate(boolean compat) throws RSBException, InterruptedException {
-		synchronized (this.listener) {
-			QueueAdapter<TaskState> qa = new QueueAdapter<>();
-			this.queue = qa.getQueue();
-			if (compat) {
-				this.listener.addHandler(qa, true);
-			} else {
-				this.listener.addHandler(new FilteringHandler(qa, (e) -> {
-					boolean related;
-					synchronized (this.listener) {
-						related = e.getCauses().contains(this.causeId);
-					}
-					LOG.log(Level.FINE, "SKIPPED task update at ''{0}'' with ''{1}'' (unrelated)", new String[]{this.scope.toString(), shortString(e.getData())});
-					return related;
-				}), true);
+		synchronized (this.monitor) {
+			if (this.active) {
+				return;
 			}
-			this.listener.addFilter(new OriginFilter(informer.getId(), true));
-			if (!this.informer.isActive()) {
-				this.informer.activate();
+			this.hub = TaskScopeHub.acquire(this.scope);
+			this.compat = compat;
+			if (compat) {
+				this.hub.addRoute(null, this.route);
+			} else if (this.causeId != null) {
+				this.hub.addRoute(this.causeId, this.route);
 			}
-
-			this.listener.activate();
 			this.active = true;
-			LOG.log(Level.FINE, "Activated listener/informer pair at ''{0}''", listener.getScope());
+			LOG.log(Level.FINE, "Attached to shared listener/informer pair at ''{0}''", this.scope);
+		}
+	}
 
-			new Thread(() -> {
-				while (this.active) {
-					try {
-						TaskState update = this.queue.poll(2000, TimeUnit.MILLISECONDS);
-						if (update != null) {
-							LOG.log(Level.INFO, "RECEIVED task update at ''{0}'' with ''{1}''", new String[]{this.scope.toString(), shortString(update)});
-							this.task.mergeFrom(update);
-							this.listeners.forEach((ts) -> {
-								ts.updated(update);
-							});
-							checkState();
-						}
-					} catch (InterruptedException e) {
-						LOG.log(Level.FINE, "Event dispatching interrupted", e);
-						Thread.currentThread().interrupt();
-					}
-				}
-			}, "task-dispatcher@" + scope).start();
+	private void receive(Event e) {
+		if (!(e.getData() instanceof TaskState)) {
+			return;
+		}
+		TaskState update = (TaskState) e.getData();
+		if (update.getOrigin() == this.origin) {
+			LOG.log(Level.FINE, "SKIPPED task update at ''{0}'' with ''{1}'' (own origin)", new String[]{this.scope.toString(), shortString(update)});
+			return;
 		}
+		this.dispatcher.execute(() -> {
+			if (this.active) {
+				LOG.log(Level.INFO, "RECEIVED task update at ''{0}'' with ''{1}''", new String[]{this.scope.toString(), shortString(update)});
+				synchronized (this) {
+					this.task.mergeFrom(update);
+				}
+				this.listeners.forEach((ts) -> {
+					ts.updated(update);
+				});
+				checkState();
+			}
+		});
 	}
 
 	public void deactivate() {
-		synchronized (this.listener) {
+		synchronized (this.monitor) {
 			this.listeners.clear();
-			try {
-				if (this.listener.isActive()) {
-					this.listener.deactivate();
-				}
-				if (!this.foreignInformer && this.informer.isActive()) {
-					this.informer.deactivate();
-				}
-				LOG.log(Level.INFO, "Deactivated listener/informer pair at ''{0}''", listener.getScope());
-			} catch (RSBException ex) {
-				LOG.log(Level.WARNING, "Could not deactivate listener/informer pair at '" + listener.getScope() + "'", ex);
-			} catch (InterruptedException ex) {
-				LOG.log(Level.WARNING, "Could not deactivate listener/informer pair at '" + listener.getScope() + "'", ex);
-				Thread.currentThread().interrupt();
+			if (this.hub != null) {
+				this.hub.removeRoute(this.compat ? null : this.causeId, this.route);
+				this.hub.release();
+				this.hub = null;
+				LOG.log(Level.INFO, "Detached from shared listener/informer pair at ''{0}''", this.scope);
 			}
 			this.active = false;
 		}
@@ -197,16 +187,26 @@ public class TaskProxy {
 
 	private synchronized void publish() {
 		try {
-			TaskState toSend = this.task.setSerial(this.task.getSerial() + 1).build();
+			TaskState toSend = this.task.setOrigin(this.origin).setSerial(this.task.getSerial() + 1).build();
 			LOG.log(Level.INFO, "SENDING task update to ''{0}'' with ''{1}''", new String[]{this.scope.toString(), shortString(toSend)});
 			Event e = new Event(this.scope, TaskState.class, toSend);
 			if (this.causeId != null) {
 				e.addCause(this.causeId);
 			}
-			synchronized (this.listener) {
-				this.informer.publish(e);
-				if (this.causeId == null) {
+			synchronized (this.monitor) {
+				if (this.foreignInformer) {
+					this.informer.publish(e);
+				} else if (this.hub == null) {
+					throw new RSBException("Task proxy at '" + this.scope + "' is not active");
+				} else if (this.causeId == null) {
+					if (this.compat) {
+						this.hub.publish(e);
+					} else {
+						this.hub.publish(e, this.route);
+					}
 					this.causeId = e.getId();
+				} else {
+					this.hub.publish(e);
 				}
 			}
 		} catch (RSBException ex) {
@@ -222,22 +222,24 @@ public class TaskProxy {
 	public void update(State state) {
 		setState(state);
 		publish();
+		checkState();
 	}
 
 	public void update(State state, Object payload) {
 		setState(state);
 		setPayload(payload);
 		publish();
+		checkState();
 	}
 
 	public void udpate(TaskState task) {
 		this.task.mergeFrom(task);
 		publish();
+		checkState();
 	}
 
 	private void setState(State state) {
 		this.task.setState(state);
-		checkState();
 	}
 
 	private void setPayload(Object payload) {
@@ -248,9 +250,7 @@ public class TaskProxy {
 			ws = UTF8;
 		} else {
 			try {
-				if (sservice == null || !payload.getClass().equals(sservice.getClass())) {
-					sservice = new SerializationService<>(payload.getClass());
-				}
+				SerializationService sservice = SerializationCache.getInstance().forType(payload.getClass());
 				pl = sservice.serialize(payload);
 				ws = sservice.getSchema();
 			} catch (InitializeException ex) {
@@ -263,9 +263,7 @@ public class TaskProxy {
 	}
 
 	public Object getPayload() {
-		if (sservice == null || !this.task.getPayload().getClass().equals(sservice.getClass())) {
-			sservice = new SerializationService(this.task.getWireSchema().toStringUtf8());
-		}
+		SerializationService sservice = SerializationCache.getInstance().forSchema(this.task.getWireSchema().toStringUtf8());
 		return sservice.deserialize(this.task.getPayload());
 	}
 }
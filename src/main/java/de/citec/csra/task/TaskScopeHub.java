@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.task;
+
+import de.citec.csra.util.Threads;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import rsb.AbstractEventHandler;
+import rsb.Event;
+import rsb.EventId;
+import rsb.Factory;
+import rsb.Informer;
+import rsb.InitializeException;
+import rsb.Listener;
+import rsb.RSBException;
+import rsb.Scope;
+
+/**
+ * Listener/informer pair shared by all {@link TaskProxy} instances of a scope.
+ * Incoming events are routed to the proxies registered for one of their
+ * causes, so that each event is received and decoded only once per process.
+ * Hubs are reference counted and deactivated when the last proxy leaves.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class TaskScopeHub {
+
+	private final static Logger LOG = Logger.getLogger(TaskScopeHub.class.getName());
+	private final static int DISPATCH_THREADS = Runtime.getRuntime().availableProcessors();
+	private final static Map<Scope, TaskScopeHub> HUBS = new HashMap<>();
+	private final static int UNROUTED_LIMIT = 1024;
+	private final static long UNROUTED_AGE = 1000000000L;
+	private static ThreadPoolExecutor dispatchPool;
+	private static ThreadPoolExecutor publishPool;
+
+	private final Scope scope;
+	private final Listener listener;
+	private final Informer informer;
+	private final Map<EventId, List<Consumer<Event>>> routes = new HashMap<>();
+	private final List<Consumer<Event>> wildcards = new ArrayList<>();
+	private final Deque<Unrouted> unrouted = new ArrayDeque<>();
+	private int pending;
+	private int references;
+
+	private static class Unrouted {
+
+		private final Event event;
+		private final long received = System.nanoTime();
+
+		Unrouted(Event event) {
+			this.event = event;
+		}
+	}
+
+	public static synchronized Executor getDispatchPool() {
+		if (dispatchPool == null) {
+			dispatchPool = new ThreadPoolExecutor(DISPATCH_THREADS, DISPATCH_THREADS, 0, MILLISECONDS, new LinkedBlockingQueue<>(),
+					Threads.factory("task-dispatcher", true));
+		}
+		return dispatchPool;
+	}
+
+	/**
+	 * Executor for follow-up work that publishes, e.g. aborting tasks. The
+	 * dispatch pool only runs short callbacks and must not wait for the
+	 * network.
+	 */
+	public static synchronized Executor getPublishPool() {
+		if (publishPool == null) {
+			publishPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, SECONDS, new SynchronousQueue<>(),
+					Threads.factory("task-publisher", true));
+		}
+		return publishPool;
+	}
+
+	public static TaskScopeHub acquire(Scope scope) throws RSBException {
+		synchronized (HUBS) {
+			TaskScopeHub hub = HUBS.get(scope);
+			if (hub == null) {
+				hub = new TaskScopeHub(scope);
+				HUBS.put(scope, hub);
+			}
+			hub.references++;
+			return hub;
+		}
+	}
+
+	private TaskScopeHub(Scope scope) throws RSBException {
+		this.scope = scope;
+		this.informer = Factory.getInstance().createInformer(scope);
+		this.listener = Factory.getInstance().createListener(scope);
+		try {
+			this.listener.addHandler(new AbstractEventHandler() {
+				@Override
+				public void handleEvent(Event e) {
+					route(e);
+				}
+			}, true);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InitializeException("Interrupted during handler registration", ex);
+		}
+		this.informer.activate();
+		this.listener.activate();
+		LOG.log(Level.FINE, "Activated shared listener/informer pair at ''{0}''", scope);
+	}
+
+	public void release() {
+		synchronized (HUBS) {
+			if (--this.references > 0) {
+				return;
+			}
+			HUBS.remove(this.scope);
+		}
+		try {
+			this.listener.deactivate();
+			this.informer.deactivate();
+			LOG.log(Level.FINE, "Deactivated shared listener/informer pair at ''{0}''", this.scope);
+		} catch (RSBException ex) {
+			LOG.log(Level.WARNING, "Could not deactivate listener/informer pair at '" + this.scope + "'", ex);
+		} catch (InterruptedException ex) {
+			LOG.log(Level.WARNING, "Could not deactivate listener/informer pair at '" + this.scope + "'", ex);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Delivers events caused by the given event to the route. A {@code null}
+	 * cause delivers all events.
+	 */
+	public synchronized void addRoute(EventId cause, Consumer<Event> route) {
+		if (cause == null) {
+			this.wildcards.add(route);
+		} else {
+			this.routes.computeIfAbsent(cause, (c) -> new ArrayList<>(1)).add(route);
+		}
+	}
+
+	public synchronized void removeRoute(EventId cause, Consumer<Event> route) {
+		if (cause == null) {
+			this.wildcards.remove(route);
+		} else {
+			List<Consumer<Event>> rs = this.routes.get(cause);
+			if (rs != null && rs.remove(route) && rs.isEmpty()) {
+				this.routes.remove(cause);
+			}
+		}
+	}
+
+	public void publish(Event e) throws RSBException {
+		synchronized (this.informer) {
+			this.informer.publish(e);
+		}
+	}
+
+	/**
+	 * Publishes the event and routes all events it causes to the given
+	 * route. The event id is only known after publishing, so answers that
+	 * arrive before the route is registered are held back and replayed in
+	 * order during registration. Held back events are bounded in number and
+	 * age, as answers can only arrive after the publish has been sent.
+	 */
+	public void publish(Event e, Consumer<Event> route) throws RSBException {
+		synchronized (this) {
+			this.pending++;
+		}
+		try {
+			publish(e);
+		} finally {
+			synchronized (this) {
+				if (e.getId() != null) {
+					addRoute(e.getId(), route);
+					expireUnrouted();
+					Iterator<Unrouted> it = this.unrouted.iterator();
+					while (it.hasNext()) {
+						Event u = it.next().event;
+						if (u.getCauses().contains(e.getId())) {
+							it.remove();
+							route.accept(u);
+						}
+					}
+				}
+				if (--this.pending == 0) {
+					this.unrouted.clear();
+				}
+			}
+		}
+	}
+
+	private void route(Event e) {
+		List<Consumer<Event>> targets;
+		synchronized (this) {
+			targets = new ArrayList<>(this.wildcards);
+			boolean routed = false;
+			for (EventId cause : e.getCauses()) {
+				List<Consumer<Event>> rs = this.routes.get(cause);
+				if (rs != null) {
+					targets.addAll(rs);
+					routed = true;
+				}
+			}
+			if (!routed && this.pending > 0 && !e.getCauses().isEmpty()) {
+				this.unrouted.add(new Unrouted(e));
+				expireUnrouted();
+			}
+		}
+		targets.forEach((r) -> r.accept(e));
+	}
+
+	private void expireUnrouted() {
+		long now = System.nanoTime();
+		while (this.unrouted.size() > UNROUTED_LIMIT || (!this.unrouted.isEmpty() && now - this.unrouted.peekFirst().received > UNROUTED_AGE)) {
+			this.unrouted.pollFirst();
+		}
+	}
+}
@@ -17,7 +17,16 @@
 package de.citec.csra.task.cli;
 
 import de.citec.csra.task.TaskProxy;
+import de.citec.csra.task.TaskScopeHub;
+import de.citec.csra.util.Counter;
+import de.citec.csra.util.LatencyHistogram;
+import de.citec.csra.util.Metrics;
+import de.citec.csra.util.TimeoutService;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -50,6 +59,12 @@ public class RemoteTask<T> implements Callable, TaskListener {
 	private final Object monitor = new Object();
 	private State state = INITIATED;
 	private final boolean compat;
+	private final LatencyHistogram acceptLatency;
+	private final LatencyHistogram completeLatency;
+	private final Counter timeouts;
+	private long initiated;
+	private CompletableFuture<Object> result;
+	private ScheduledFuture<?> acceptTimeout;
 
 	public RemoteTask(String scope, T payload) throws InitializeException {
 		this(scope, payload, DEFAULT_TIMEOUT, DEFAULT_COMPAT);
@@ -69,86 +84,171 @@ public class RemoteTask<T> implements Callable, TaskListener {
 		this.payload = payload;
 		this.accept = accept;
 		this.compat = compat;
+		this.acceptLatency = Metrics.getInstance().histogram("task.latency.accepted@" + scope);
+		this.completeLatency = Metrics.getInstance().histogram("task.latency.completed@" + scope);
+		this.timeouts = Metrics.getInstance().counter("task.timeout@" + scope);
+	}
+
+	public String getScope() {
+		return this.scope;
 	}
 
 	private void activate() throws RSBException, InterruptedException {
 		synchronized (this.monitor) {
 			this.proxy.addTaskListener(this);
 			this.proxy.activate(compat);
+			this.initiated = System.nanoTime();
 			this.proxy.update(state, payload);
 		}
 	}
 
-	private void deactivate() throws InterruptedException, RSBException {
+	private void deactivate() {
 		this.proxy.removeTaskListener(this);
 		this.proxy.deactivate();
 	}
 
+	/**
+	 * Sends the task and returns immediately. The future completes with the
+	 * result payload when the task completes, or exceptionally when it is
+	 * rejected, fails or is not accepted in time. Cancelling the returned
+	 * future sends ABORT to the handler.
+	 */
+	public CompletableFuture<Object> submitAsync() throws RSBException, InterruptedException {
+		CompletableFuture<Object> future = new CompletableFuture<Object>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				boolean cancelled = super.cancel(mayInterruptIfRunning);
+				if (cancelled) {
+					abort();
+				}
+				return cancelled;
+			}
+		};
+		synchronized (this.monitor) {
+			if (this.result != null) {
+				throw new IllegalStateException("Task at '" + scope + "' already submitted.");
+			}
+			this.result = future;
+		}
+		try {
+			activate();
+		} catch (RSBException | InterruptedException ex) {
+			deactivate();
+			throw ex;
+		}
+		synchronized (this.monitor) {
+			if (this.state == INITIATED && !future.isDone()) {
+				this.acceptTimeout = TimeoutService.getInstance().schedule(() -> {
+					TaskScopeHub.getPublishPool().execute(this::acceptTimedOut);
+				}, accept, MILLISECONDS);
+			}
+		}
+		return future;
+	}
+
 	@Override
 	public Object call() throws RSBException, InterruptedException, TimeoutException {
-
-		activate();
-
+		CompletableFuture<Object> future = submitAsync();
 		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			future.cancel(true);
+			throw ex;
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof TimeoutException) {
+				throw (TimeoutException) ex.getCause();
+			} else if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			} else {
+				throw new RuntimeException(ex.getCause());
+			}
+		}
+	}
 
-			synchronized (this.monitor) {
-				this.monitor.wait(accept);
+	private void acceptTimedOut() {
+		synchronized (this.monitor) {
+			if (this.state != INITIATED || this.result.isDone()) {
+				return;
 			}
+		}
+		this.timeouts.increment();
+		LOG.log(Level.FINE, "Task at ''{0}'' not accepted in time, aborting.", scope);
+		this.proxy.update(ABORT);
+		deactivate();
+		this.result.completeExceptionally(new TimeoutException("Task at '" + scope + "' timed out."));
+	}
 
-			switch (state) {
-				case ACCEPTED:
-					while (true) {
-						synchronized (this.monitor) {
-							this.monitor.wait();
-							switch (state) {
-//								still computing:
-								case ABORT_FAILED:
-								case ACCEPTED:
-								case RESULT_AVAILABLE:
-								case UPDATE:
-									break;
-//								success:
-								case COMPLETED:
-									return proxy.getPayload();
-//								error states:
-								case ABORTED:
-								case FAILED:
-								case UPDATE_REJECTED:
-									throw new RuntimeException("Task at '" + scope + "' ended abnormally (" + state + "): " + proxy.getPayload());
-//								illegal states:
-								case ABORT: //should only be sent by initiator.
-								case INITIATED: //already accepted, doesn't make sense here.
-									this.proxy.update(ABORT);
-									deactivate();
-								case REJECTED: //already accepted, doesn't make sense here.
-									throw new IllegalArgumentException("Received illegal task state '" + state + "' at '" + scope + "', aborting and shutting down.");
-							}
-						}
-					}
+	private void abort() {
+		synchronized (this.monitor) {
+			if (this.acceptTimeout != null) {
+				this.acceptTimeout.cancel(false);
+			}
+			switch (this.state) {
 				case COMPLETED:
-					LOG.log(Level.FINE, "Christmas came early: Task at ''{0}'' completed without accepting first.", scope);
-					return proxy.getPayload();
+				case ABORTED:
+				case FAILED:
 				case REJECTED:
-					throw new RuntimeException("Task at '" + scope + "' could not be executed (" + state + "): " + proxy.getPayload());
-				case INITIATED:
-					deactivate();
-					throw new TimeoutException("Task at '" + scope + "' timed out.");
+				case UPDATE_REJECTED:
+					return;
 				default:
-					this.proxy.update(ABORT);
-					deactivate();
-					throw new IllegalArgumentException("Received illegal task state '" + state + "' at '" + scope + "', aborting and shutting down.");
+					break;
 			}
-		} catch (InterruptedException ex) {
-			deactivate();
-			throw ex;
 		}
+		LOG.log(Level.FINE, "Task at ''{0}'' cancelled, aborting.", scope);
+		this.proxy.update(ABORT);
+		deactivate();
 	}
 
 	@Override
 	public void updated(TaskState state) {
+		State previous;
 		synchronized (this.monitor) {
+			previous = this.state;
+			if (this.state == INITIATED && state.getState() == ACCEPTED) {
+				this.acceptLatency.recordSince(this.initiated);
+			} else if (this.state != COMPLETED && state.getState() == COMPLETED) {
+				this.completeLatency.recordSince(this.initiated);
+			}
 			this.state = state.getState();
-			this.monitor.notifyAll();
+			if (this.state != INITIATED && this.acceptTimeout != null) {
+				this.acceptTimeout.cancel(false);
+			}
+		}
+		switch (state.getState()) {
+//			still computing:
+			case ABORT_FAILED:
+			case ACCEPTED:
+			case RESULT_AVAILABLE:
+			case UPDATE:
+				break;
+//			success:
+			case COMPLETED:
+				if (previous == INITIATED) {
+					LOG.log(Level.FINE, "Christmas came early: Task at ''{0}'' completed without accepting first.", scope);
+				}
+				this.result.complete(proxy.getPayload());
+				break;
+//			error states:
+			case ABORTED:
+			case FAILED:
+			case UPDATE_REJECTED:
+				this.result.completeExceptionally(new RuntimeException("Task at '" + scope + "' ended abnormally (" + state.getState() + "): " + proxy.getPayload()));
+				break;
+			case REJECTED:
+				if (previous == INITIATED) {
+					this.result.completeExceptionally(new RuntimeException("Task at '" + scope + "' could not be executed (" + state.getState() + "): " + proxy.getPayload()));
+					break;
+				}
+//			illegal states:
+			case ABORT: //should only be sent by initiator.
+			case INITIATED: //already sent, doesn't make sense here.
+			default:
+				TaskScopeHub.getPublishPool().execute(() -> {
+					this.proxy.update(ABORT);
+					deactivate();
+				});
+				this.result.completeExceptionally(new IllegalArgumentException("Received illegal task state '" + state.getState() + "' at '" + scope + "', aborting and shutting down."));
+				break;
 		}
 	}
 }
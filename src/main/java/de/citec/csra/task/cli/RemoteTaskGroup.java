@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.task.cli;
+
+import de.citec.csra.task.TaskScopeHub;
+import de.citec.csra.util.TimeoutService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import rsb.InitializeException;
+import rsb.RSBException;
+
+/**
+ * Submits remote tasks to several scopes at once and gathers their results
+ * according to a policy. Once the policy is satisfied, or cannot be satisfied
+ * anymore, all tasks still running are cancelled, which sends ABORT to their
+ * handlers. Results are mapped by scope in submission order and only contain
+ * successful tasks, hence every scope may only appear once. A group can be
+ * submitted once.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class RemoteTaskGroup {
+
+	private final static Logger LOG = Logger.getLogger(RemoteTaskGroup.class.getName());
+	private final List<RemoteTask<?>> tasks;
+	private final Map<String, Object> results = new LinkedHashMap<>();
+	private final List<CompletableFuture<Object>> pending = new ArrayList<>();
+	private CompletableFuture<Map<String, Object>> gathered;
+	private Throwable lastFailure;
+	private int failures;
+
+	public RemoteTaskGroup(Collection<RemoteTask<?>> tasks) {
+		this.tasks = new ArrayList<>(tasks);
+		Set<String> scopes = new HashSet<>();
+		for (RemoteTask<?> task : this.tasks) {
+			if (!scopes.add(task.getScope())) {
+				throw new IllegalArgumentException("Duplicate task scope '" + task.getScope() + "' in group");
+			}
+		}
+	}
+
+	/**
+	 * Creates a task for every scope with the corresponding payload.
+	 */
+	public RemoteTaskGroup(Map<String, ?> payloads) throws InitializeException {
+		this.tasks = new ArrayList<>(payloads.size());
+		for (Map.Entry<String, ?> e : payloads.entrySet()) {
+			this.tasks.add(new RemoteTask<>(e.getKey(), e.getValue()));
+		}
+	}
+
+	public List<RemoteTask<?>> getTasks() {
+		return this.tasks;
+	}
+
+	/**
+	 * Completes with all results, or exceptionally as soon as any task fails.
+	 */
+	public CompletableFuture<Map<String, Object>> all() {
+		return quorum(this.tasks.size());
+	}
+
+	/**
+	 * Completes with the first successful result, or exceptionally when all
+	 * tasks have failed.
+	 */
+	public CompletableFuture<Map<String, Object>> firstSuccess() {
+		return quorum(1);
+	}
+
+	/**
+	 * Completes with the first {@code required} successful results, or
+	 * exceptionally once too many tasks have failed to reach them.
+	 */
+	public CompletableFuture<Map<String, Object>> quorum(int required) {
+		if (required < 1 || required > this.tasks.size()) {
+			throw new IllegalArgumentException("Quorum of " + required + " impossible with " + this.tasks.size() + " tasks");
+		}
+		CompletableFuture<Map<String, Object>> result = open();
+		send(required);
+		return result;
+	}
+
+	/**
+	 * Completes with the results available when the deadline passes, or
+	 * earlier when all tasks have ended.
+	 */
+	public CompletableFuture<Map<String, Object>> deadline(long time, TimeUnit unit) {
+		CompletableFuture<Map<String, Object>> result = open();
+		ScheduledFuture<?> timer = TimeoutService.getInstance().schedule(() -> {
+			TaskScopeHub.getDispatchPool().execute(() -> {
+				synchronized (this) {
+					LOG.log(Level.FINE, "Deadline passed with {0} of {1} results", new Object[]{this.results.size(), this.tasks.size()});
+					result.complete(new LinkedHashMap<>(this.results));
+				}
+			});
+		}, time, unit);
+		result.whenComplete((r, ex) -> timer.cancel(false));
+		send(0);
+		return result;
+	}
+
+	private synchronized CompletableFuture<Map<String, Object>> open() {
+		if (this.gathered != null) {
+			throw new IllegalStateException("Task group already submitted.");
+		}
+		this.gathered = new CompletableFuture<>();
+		this.gathered.whenCompleteAsync((r, ex) -> cancelRemaining(), TaskScopeHub.getPublishPool());
+		return this.gathered;
+	}
+
+	/**
+	 * Submits all tasks without holding the group lock, as every submission
+	 * publishes.
+	 */
+	private void send(int required) {
+		List<RemoteTask<?>> submitting;
+		synchronized (this) {
+			submitting = new ArrayList<>(this.tasks);
+		}
+		List<CompletableFuture<Object>> futures = new ArrayList<>(submitting.size());
+		for (RemoteTask<?> task : submitting) {
+			CompletableFuture<Object> future;
+			try {
+				future = task.submitAsync();
+			} catch (RSBException ex) {
+				future = new CompletableFuture<>();
+				future.completeExceptionally(ex);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				future = new CompletableFuture<>();
+				future.completeExceptionally(ex);
+			}
+			futures.add(future);
+		}
+		synchronized (this) {
+			this.pending.addAll(futures);
+		}
+		for (int i = 0; i < submitting.size(); i++) {
+			String scope = submitting.get(i).getScope();
+			futures.get(i).whenComplete((r, ex) -> gather(scope, r, ex, required));
+		}
+		if (this.gathered.isDone()) {
+//			completed early, e.g. by a deadline, before all tasks were pending
+			cancelRemaining();
+		}
+	}
+
+	private synchronized void gather(String scope, Object result, Throwable ex, int required) {
+		if (this.gathered.isDone()) {
+			return;
+		}
+		if (ex == null) {
+			this.results.put(scope, result);
+		} else {
+			LOG.log(Level.FINE, "Task at ''{0}'' failed: {1}", new Object[]{scope, ex});
+			this.lastFailure = ex;
+			this.failures++;
+		}
+		int ended = this.results.size() + this.failures;
+		if (required > 0 && this.results.size() >= required) {
+			this.gathered.complete(new LinkedHashMap<>(this.results));
+		} else if (required > 0 && this.tasks.size() - this.failures < required) {
+			this.gathered.completeExceptionally(this.lastFailure);
+		} else if (ended == this.tasks.size()) {
+			this.gathered.complete(new LinkedHashMap<>(this.results));
+		}
+	}
+
+	private void cancelRemaining() {
+		List<CompletableFuture<Object>> running;
+		synchronized (this) {
+			running = new ArrayList<>(this.pending);
+		}
+		running.stream().filter((f) -> !f.isDone()).forEach((f) -> f.cancel(true));
+	}
+}
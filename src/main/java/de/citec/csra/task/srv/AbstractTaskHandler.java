@@ -17,8 +17,14 @@
 package de.citec.csra.task.srv;
 
 import de.citec.csra.task.TaskProxy;
+import de.citec.csra.util.Threads;
+import de.citec.csra.util.VirtualThreads;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import rsb.Event;
 import rsb.Informer;
 import rsb.RSBException;
@@ -31,10 +37,51 @@ import rst.communicationpatterns.TaskStateType.TaskState;
  */
 public abstract class AbstractTaskHandler implements TaskHandler, LocalTaskFactory {
 
+	private final static Logger LOG = Logger.getLogger(AbstractTaskHandler.class.getName());
+	private final static String THREADSVAR = "RTA_TASK_THREADS";
+	private final static int CAPACITY = 1024;
 	private final ExecutorService service;
 
+	/**
+	 * Executes tasks on a bounded pool whose size defaults to 64 threads and
+	 * can be set with the {@code RTA_TASK_THREADS} environment variable. With
+	 * virtual threads, every task gets its own thread instead.
+	 */
 	public AbstractTaskHandler() {
-		this(Executors.newCachedThreadPool());
+		this(defaultExecutor());
+	}
+
+	private static ExecutorService defaultExecutor() {
+		if (Threads.getProvider() instanceof VirtualThreads && VirtualThreads.isSupported()) {
+			return Threads.newTaskExecutor("task-handler");
+		}
+		return bounded(parallelism(), CAPACITY);
+	}
+
+	private static int parallelism() {
+		if (System.getenv().containsKey(THREADSVAR)) {
+			try {
+				return Integer.parseInt(System.getenv(THREADSVAR));
+			} catch (NumberFormatException ex) {
+				LOG.log(Level.WARNING, "ignoring invalid ${0}=''{1}''", new String[]{THREADSVAR, System.getenv(THREADSVAR)});
+			}
+		}
+		return 64;
+	}
+
+	/**
+	 * Executes at most {@code parallelism} tasks at once with up to
+	 * {@code capacity} waiting. Further tasks are rejected by the server.
+	 */
+	public AbstractTaskHandler(int parallelism, int capacity) {
+		this(bounded(parallelism, capacity));
+	}
+
+	private static ExecutorService bounded(int parallelism, int capacity) {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(capacity),
+				Threads.factory("task-handler", false));
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
 	}
 
 	public AbstractTaskHandler(ExecutorService service) {
@@ -5,17 +5,25 @@
  */
 package de.citec.csra.task.srv;
 
+import de.citec.csra.allocation.cli.AllocationBatch;
 import de.citec.csra.allocation.cli.ExecutableResource;
-import static de.citec.csra.rst.util.IntervalUtils.currentTimeInMicros;
+import de.citec.csra.allocation.cli.RemoteAllocation;
+import de.citec.csra.allocation.cli.RemoteAllocationService;
 import static de.citec.csra.rst.util.StringRepresentation.shortString;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import rsb.RSBException;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
 
 /**
  *
@@ -25,7 +33,6 @@ public class ExecutableResourceTask implements LocalTask {
 
 	private final static Logger LOG = Logger.getLogger(ExecutableResourceTask.class.getName());
 	private final Set<ExecutableResource> actions;
-	private final long TIMEOUT_US = 500000;
 
 	public ExecutableResourceTask(Set<ExecutableResource> actions) throws InterruptedException, IllegalArgumentException, RuntimeException {
 		this.actions = actions;
@@ -43,9 +50,18 @@ public class ExecutableResourceTask implements LocalTask {
 
 	@Override
 	public void abort(Object description) throws Exception {
+		List<RemoteAllocation> active = new ArrayList<>();
 		for (ExecutableResource er : this.actions) {
-			er.shutdown();
+			if (er.withdraw()) {
+				continue;
+			}
+			if (er.getRemote().isAlive()) {
+				active.add(er.getRemote());
+			} else {
+				er.shutdown();
+			}
 		}
+		new AllocationBatch(active).shutdown();
 	}
 
 	@Override
@@ -63,47 +79,47 @@ public class ExecutableResourceTask implements LocalTask {
 	}
 
 	private void schedule(Set<ExecutableResource> actions) throws InterruptedException, IllegalArgumentException, RuntimeException {
-		final Object monitor = new Object();
-		Set<ExecutableResource> pending = new HashSet<>(actions);
-		Set<ExecutableResource> rejected = new HashSet<>();
+		Map<RemoteAllocation, ExecutableResource> remotes = new HashMap<>();
 		for (ExecutableResource r : actions) {
-			r.getRemote().addSchedulerListener((a) -> {
-				synchronized (monitor) {
-					switch (a.getState()) {
-						case REJECTED:
-							rejected.add(r);
-							LOG.log(Level.WARNING, "Resource unavailable: ''{0}''", shortString(a));
-						case SCHEDULED:
-							pending.remove(r);
-							break;
-					}
-					monitor.notifyAll();
+			remotes.put(r.getRemote(), r);
+		}
+		AllocationBatch batch = new AllocationBatch(remotes.keySet());
+
+		List<ResourceAllocation> results;
+		try {
+			long timeout = RemoteAllocationService.getRoundTrip().getTimeout(MICROSECONDS);
+			results = batch.schedule().get(timeout, MICROSECONDS);
+		} catch (RSBException | ExecutionException ex) {
+			throw new RuntimeException(ex);
+		} catch (TimeoutException ex) {
+			Set<ExecutableResource> pending = new HashSet<>();
+			remotes.forEach((remote, r) -> {
+				switch (remote.getCurrentState()) {
+					case REQUESTED:
+						pending.add(r);
+						break;
+					case REJECTED:
+						LOG.log(Level.WARNING, "Resource unavailable: ''{0}''", shortString(remote.getAllocation()));
+						pending.add(r);
+						break;
 				}
 			});
-			try {
-				r.getRemote().schedule();
-			} catch (RSBException ex) {
-				throw new RuntimeException(ex);
-			}
+			actions.removeAll(pending);
+			throw new IllegalArgumentException("Allocation service unreachable in given time.");
 		}
-		
-		actions.removeAll(rejected);
 
-		long start = currentTimeInMicros();
-		long remaining = TIMEOUT_US;
-		while (remaining > 0) {
-			synchronized (monitor) {
-				if (pending.isEmpty()) {
-					return;
-				} else {
-					monitor.wait(remaining / 1000, (int) ((remaining % 1000) * 1000));
-					remaining = TIMEOUT_US - (currentTimeInMicros() - start);
-				}
+		List<RemoteAllocation> members = batch.getMembers();
+		for (int i = 0; i < members.size(); i++) {
+			ResourceAllocation a = results.get(i);
+			switch (a.getState()) {
+				case SCHEDULED:
+				case ALLOCATED:
+					break;
+				default:
+					LOG.log(Level.WARNING, "Resource unavailable: ''{0}''", shortString(a));
+					actions.remove(remotes.get(members.get(i)));
+					break;
 			}
 		}
-		
-		actions.removeAll(pending);
-		
-		throw new IllegalArgumentException("Allocation service unreachable in given time.");
 	}
 }
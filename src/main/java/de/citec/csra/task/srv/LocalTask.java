@@ -23,9 +23,12 @@ import java.util.concurrent.Callable;
  * @author pholthau
  */
 public interface LocalTask extends Callable {
-		
+
+	/**
+	 * Called on a separate thread when the task is aborted. The thread
+	 * executing {@link #call()} is interrupted independently.
+	 */
 	public default void abort(Object description) throws Exception {
-		Thread.currentThread().interrupt();
 	}
 	
 }
@@ -18,15 +18,16 @@ package de.citec.csra.task.srv;
 
 import de.citec.csra.task.cli.TaskListener;
 import de.citec.csra.task.TaskProxy;
+import de.citec.csra.task.TaskScopeHub;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import rsb.RSBException;
 import rst.communicationpatterns.TaskStateType.TaskState;
+import static rst.communicationpatterns.TaskStateType.TaskState.State.ABORTED;
 import static rst.communicationpatterns.TaskStateType.TaskState.State.ACCEPTED;
 import static rst.communicationpatterns.TaskStateType.TaskState.State.COMPLETED;
 import static rst.communicationpatterns.TaskStateType.TaskState.State.FAILED;
@@ -42,7 +43,7 @@ public class TaskExecutionMonitor implements Callable<Void>, TaskListener {
 	private final TaskProxy proxy;
 	private LocalTask executor;
 	private final LocalTaskFactory factory;
-	private final ExecutorService service = Executors.newSingleThreadExecutor();
+	private volatile FutureTask<Object> running;
 
 	public TaskExecutionMonitor(TaskProxy proxy, LocalTaskFactory factory) {
 		this.proxy = proxy;
@@ -75,15 +76,21 @@ public class TaskExecutionMonitor implements Callable<Void>, TaskListener {
 			return null;
 		}
 		
+		proxy.addTaskListener(this);
 		proxy.update(ACCEPTED);
 		
+		FutureTask<Object> task = new FutureTask<>(this.executor);
+		this.running = task;
 		try {
-
-			Future future = service.submit(this.executor);
-			Object result = future.get();
+//			executes on the calling thread, abort cancels via interrupt
+			task.run();
+			Object result = task.get();
 
 //			update also implies deactivation
 			proxy.update(COMPLETED, result);
+		} catch (CancellationException ex) {
+			Thread.interrupted();
+			proxy.update(ABORTED);
 		} catch (ExecutionException ex) {
 			proxy.update(FAILED, ex.getCause().getMessage());
 		} catch (InterruptedException ex) {
@@ -100,12 +107,19 @@ public class TaskExecutionMonitor implements Callable<Void>, TaskListener {
 			case ABORTED:
 			case FAILED:
 			case UPDATE_REJECTED:
-				try {
-					executor.abort(proxy.getPayload());
-				} catch (Exception ex) {
-					LOG.log(Level.WARNING, "Task could not be aborted at initiator", ex);
+//				abort may publish, the task itself is only interrupted via its future
+				Object description = proxy.getPayload();
+				TaskScopeHub.getPublishPool().execute(() -> {
+					try {
+						executor.abort(description);
+					} catch (Exception ex) {
+						LOG.log(Level.WARNING, "Task could not be aborted at initiator", ex);
+					}
+				});
+				FutureTask<Object> task = this.running;
+				if (task != null) {
+					task.cancel(true);
 				}
-				service.shutdownNow();
 				break;
 			default:
 				break;
@@ -16,66 +16,177 @@
  */
 package de.citec.csra.task.srv;
 
-import java.util.concurrent.BlockingQueue;
+import de.citec.csra.util.Counter;
+import de.citec.csra.util.Metrics;
+import de.citec.csra.util.Threads;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import rsb.AbstractEventHandler;
 import rsb.Event;
 import rsb.Factory;
 import rsb.Informer;
 import rsb.Listener;
 import rsb.RSBException;
 import rsb.filter.OriginFilter;
-import rsb.util.EventQueueAdapter;
 import rst.communicationpatterns.TaskStateType.TaskState;
+import static rst.communicationpatterns.TaskStateType.TaskState.Origin.HANDLER;
 import static rst.communicationpatterns.TaskStateType.TaskState.Origin.SUBMITTER;
+import static rst.communicationpatterns.TaskStateType.TaskState.State.REJECTED;
 
 /**
+ * Receives task requests at a scope and passes them through a pipeline: events
+ * are filtered on the rsb dispatching thread, then the handler is set up on a
+ * bounded pool of setup threads, which in turn hands execution to the
+ * handler's own executor. When the setup stage is full, the
+ * {@link OverloadPolicy} decides what happens to further requests.
  *
  * @author Patrick Holthaus
  * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
  */
 public class TaskServer {
 
+	public enum OverloadPolicy {
+		/**
+		 * Answer with REJECTED.
+		 */
+		REJECT,
+		/**
+		 * Drop the request silently, the client eventually times out.
+		 */
+		SHED,
+		/**
+		 * Stop receiving until capacity is available again.
+		 */
+		BLOCK
+	}
+
 	private final static Logger LOG = Logger.getLogger(TaskServer.class.getName());
+	private final static int PARALLELISM = Runtime.getRuntime().availableProcessors();
+	private final static int CAPACITY = 256;
+	private final static long SHUTDOWN_TIMEOUT = 5000;
 
 	private final Listener listener;
 	private final Informer informer;
-	private final BlockingQueue<Event> queue;
 	private final TaskHandler handler;
+	private final OverloadPolicy policy;
+	private final ThreadPoolExecutor setup;
+	private final Semaphore capacity;
+	private final Counter rejected;
+	private final Counter shed;
+	private final Object lock = new Object();
 
 	public TaskServer(String scope, TaskHandler handler) throws InterruptedException, RSBException {
-		EventQueueAdapter qa = new EventQueueAdapter();
+		this(scope, handler, PARALLELISM, CAPACITY, OverloadPolicy.REJECT);
+	}
+
+	/**
+	 * @param scope the scope to receive tasks at
+	 * @param handler the handler for received tasks
+	 * @param parallelism the number of tasks set up concurrently
+	 * @param capacity the number of tasks waiting for setup
+	 * @param policy what to do with tasks beyond capacity
+	 */
+	public TaskServer(String scope, TaskHandler handler, int parallelism, int capacity, OverloadPolicy policy) throws InterruptedException, RSBException {
 		this.handler = handler;
+		this.policy = policy;
+		this.capacity = new Semaphore(parallelism + capacity);
+		this.setup = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				Threads.factory("task-setup@" + scope, true));
+		this.setup.allowCoreThreadTimeOut(true);
 		this.informer = Factory.getInstance().createInformer(scope);
 		this.listener = Factory.getInstance().createListener(scope);
-		this.listener.addHandler(qa, true);
+		this.listener.addHandler(new AbstractEventHandler() {
+			@Override
+			public void handleEvent(Event e) {
+				receive(e);
+			}
+		}, true);
 		this.listener.addFilter(new OriginFilter(this.informer.getId(), true));
-		this.queue = qa.getQueue();
+		this.rejected = Metrics.getInstance().counter("task.server.rejected@" + scope);
+		this.shed = Metrics.getInstance().counter("task.server.shed@" + scope);
+		Metrics.getInstance().gauge("task.server.queue@" + scope, () -> this.setup.getQueue().size());
+	}
+
+	private void receive(Event e) {
+		LOG.log(Level.INFO, "Received event ''{0}''.", e);
+		if (e.getData() instanceof TaskState) {
+			TaskState task = (TaskState) e.getData();
+			if (task.getOrigin().equals(SUBMITTER)) {
+				switch (task.getState()) {
+					case INITIATED:
+						admit(task, e);
+						break;
+					default:
+						LOG.log(Level.INFO, "Ignoring event ''{0}''.", e);
+						break;
+				}
+			}
+		}
+	}
+
+	private void admit(TaskState task, Event e) {
+		if (this.policy == OverloadPolicy.BLOCK) {
+			try {
+				this.capacity.acquire();
+			} catch (InterruptedException ex) {
+				LOG.log(Level.WARNING, "Interrupted while waiting for capacity, dropping task at ''{0}''.", e.getScope());
+				Thread.currentThread().interrupt();
+				return;
+			}
+		} else if (!this.capacity.tryAcquire()) {
+			overload(task, e);
+			return;
+		}
+		try {
+			this.setup.execute(() -> {
+				try {
+					handler.handle(task, e, this.informer);
+				} catch (RejectedExecutionException ex) {
+					overload(task, e);
+				} catch (RSBException ex) {
+					LOG.log(Level.SEVERE, "Could not establish rsb communication, ignoring.", ex);
+				} catch (Exception ex) {
+					LOG.log(Level.WARNING, "Task at ''{0}'' failed during init ({1}: ''{2}''), ignoring.", new Object[]{e.getScope(), ex, ex.getMessage()});
+				} finally {
+					this.capacity.release();
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			this.capacity.release();
+			overload(task, e);
+		}
+	}
+
+	private void overload(TaskState task, Event e) {
+		if (this.policy == OverloadPolicy.SHED) {
+			LOG.log(Level.WARNING, "Server overloaded, dropping task at ''{0}''.", e.getScope());
+			this.shed.increment();
+			return;
+		}
+		LOG.log(Level.WARNING, "Server overloaded, rejecting task at ''{0}''.", e.getScope());
+		this.rejected.increment();
+		TaskState reply = TaskState.newBuilder(task).setOrigin(HANDLER).setState(REJECTED).setSerial(task.getSerial() + 1).build();
+		Event answer = new Event(e.getScope(), TaskState.class, reply);
+		answer.addCause(e.getId());
+		try {
+			synchronized (this.informer) {
+				this.informer.publish(answer);
+			}
+		} catch (RSBException ex) {
+			LOG.log(Level.SEVERE, "Could not reject task, discarding.", ex);
+		}
 	}
 
 	public void listen() throws InterruptedException {
 		LOG.log(Level.INFO, "Task server listening at ''{0}''.", this.listener.getScope());
-		while (this.listener.isActive()) {
-			Event e = this.queue.take();
-			LOG.log(Level.INFO, "Received event ''{0}''.", e);
-			if (e.getData() instanceof TaskState) {
-				TaskState task = (TaskState) e.getData();
-				if (task.getOrigin().equals(SUBMITTER)) {
-					switch (task.getState()) {
-						case INITIATED:
-							try {
-								handler.handle(task, e, this.informer);
-							} catch (RSBException ex) {
-								LOG.log(Level.SEVERE, "Could not establish rsb communication, ignoring.", ex);
-							} catch (Exception ex) {
-								LOG.log(Level.WARNING, "Task at ''{0}'' failed during init ({1}: ''{2}''), ignoring.", new Object[]{e.getScope(), ex, ex.getMessage()});
-							}
-							break;
-						default:
-							LOG.log(Level.INFO, "Ignoring event ''{0}''.", e);
-							break;
-					}
-				}
+		synchronized (this.lock) {
+			while (this.listener.isActive()) {
+				this.lock.wait();
 			}
 		}
 	}
@@ -98,8 +209,21 @@ public class TaskServer {
 		this.listener.activate();
 	}
 
+	/**
+	 * Stops receiving tasks and shuts down the setup stage. Tasks already
+	 * received are set up before the informer is deactivated. The server
+	 * cannot be activated again afterwards.
+	 */
 	public void deactivate() throws RSBException, InterruptedException {
 		this.listener.deactivate();
+		this.setup.shutdown();
+		if (!this.setup.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+			LOG.log(Level.WARNING, "Task setup at ''{0}'' did not finish within {1}ms, interrupting.", new Object[]{this.listener.getScope(), SHUTDOWN_TIMEOUT});
+			this.setup.shutdownNow();
+		}
 		this.informer.deactivate();
+		synchronized (this.lock) {
+			this.lock.notifyAll();
+		}
 	}
 }
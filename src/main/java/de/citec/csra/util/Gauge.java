@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class Gauge implements GaugeMXBean {
+
+	private volatile LongSupplier supplier;
+
+	public Gauge(LongSupplier supplier) {
+		this.supplier = supplier;
+	}
+
+	void setSupplier(LongSupplier supplier) {
+		this.supplier = supplier;
+	}
+
+	@Override
+	public long getValue() {
+		return this.supplier.getAsLong();
+	}
+}
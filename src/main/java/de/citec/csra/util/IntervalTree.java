@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Balanced interval tree of half-open intervals identified by a key. Every
+ * node carries the maximum end of its subtree, so overlap queries take
+ * O(log n + k) time. Not thread-safe.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class IntervalTree<V> {
+
+	private final class Node {
+
+		private final String key;
+		private final long begin;
+		private final long end;
+		private final V value;
+		private Node left;
+		private Node right;
+		private int height = 1;
+		private long max;
+
+		private Node(String key, long begin, long end, V value) {
+			this.key = key;
+			this.begin = begin;
+			this.end = end;
+			this.value = value;
+			this.max = end;
+		}
+	}
+
+	private final Map<String, Node> nodes = new HashMap<>();
+	private final TreeSet<Node> byEnd = new TreeSet<>((a, b) -> {
+		int c = Long.compare(a.end, b.end);
+		return c != 0 ? c : a.key.compareTo(b.key);
+	});
+	private Node root;
+
+	public void put(String key, long begin, long end, V value) {
+		remove(key);
+		Node node = new Node(key, begin, end, value);
+		this.root = insert(this.root, node);
+		this.nodes.put(key, node);
+		this.byEnd.add(node);
+	}
+
+	public V remove(String key) {
+		Node node = this.nodes.remove(key);
+		if (node == null) {
+			return null;
+		}
+		this.root = delete(this.root, node);
+		this.byEnd.remove(node);
+		return node.value;
+	}
+
+	/**
+	 * Removes all intervals ending at or before the given time and returns
+	 * their keys.
+	 */
+	public List<String> removeEndingBefore(long time) {
+		List<String> removed = new ArrayList<>();
+		while (!this.byEnd.isEmpty() && this.byEnd.first().end <= time) {
+			String key = this.byEnd.first().key;
+			remove(key);
+			removed.add(key);
+		}
+		return removed;
+	}
+
+	public V get(String key) {
+		Node node = this.nodes.get(key);
+		return node == null ? null : node.value;
+	}
+
+	public int size() {
+		return this.nodes.size();
+	}
+
+	public boolean isEmpty() {
+		return this.nodes.isEmpty();
+	}
+
+	/**
+	 * Returns the values of all intervals overlapping [begin, end) in
+	 * ascending order of their beginning.
+	 */
+	public List<V> overlapping(long begin, long end) {
+		List<V> values = new ArrayList<>();
+		collect(this.root, begin, end, values);
+		return values;
+	}
+
+	private void collect(Node t, long begin, long end, List<V> values) {
+		if (t == null || t.max <= begin) {
+			return;
+		}
+		collect(t.left, begin, end, values);
+		if (t.begin < end) {
+			if (t.end > begin) {
+				values.add(t.value);
+			}
+			collect(t.right, begin, end, values);
+		}
+	}
+
+	int height() {
+		return height(this.root);
+	}
+
+	private int compare(Node a, Node b) {
+		int c = Long.compare(a.begin, b.begin);
+		return c != 0 ? c : a.key.compareTo(b.key);
+	}
+
+	private Node insert(Node t, Node node) {
+		if (t == null) {
+			return node;
+		}
+		if (compare(node, t) < 0) {
+			t.left = insert(t.left, node);
+		} else {
+			t.right = insert(t.right, node);
+		}
+		return balance(t);
+	}
+
+	private Node delete(Node t, Node node) {
+		if (t == null) {
+			return null;
+		}
+		int c = compare(node, t);
+		if (c < 0) {
+			t.left = delete(t.left, node);
+		} else if (c > 0) {
+			t.right = delete(t.right, node);
+		} else {
+			if (t.left == null) {
+				return t.right;
+			}
+			if (t.right == null) {
+				return t.left;
+			}
+			Node min = t.right;
+			while (min.left != null) {
+				min = min.left;
+			}
+			min.right = deleteMin(t.right);
+			min.left = t.left;
+			t = min;
+		}
+		return balance(t);
+	}
+
+	private Node deleteMin(Node t) {
+		if (t.left == null) {
+			return t.right;
+		}
+		t.left = deleteMin(t.left);
+		return balance(t);
+	}
+
+	private int height(Node t) {
+		return t == null ? 0 : t.height;
+	}
+
+	private void update(Node t) {
+		t.height = 1 + Math.max(height(t.left), height(t.right));
+		t.max = t.end;
+		if (t.left != null) {
+			t.max = Math.max(t.max, t.left.max);
+		}
+		if (t.right != null) {
+			t.max = Math.max(t.max, t.right.max);
+		}
+	}
+
+	private Node balance(Node t) {
+		update(t);
+		int factor = height(t.left) - height(t.right);
+		if (factor > 1) {
+			if (height(t.left.left) < height(t.left.right)) {
+				t.left = rotateLeft(t.left);
+			}
+			return rotateRight(t);
+		}
+		if (factor < -1) {
+			if (height(t.right.right) < height(t.right.left)) {
+				t.right = rotateRight(t.right);
+			}
+			return rotateLeft(t);
+		}
+		return t;
+	}
+
+	private Node rotateRight(Node t) {
+		Node l = t.left;
+		t.left = l.right;
+		l.right = t;
+		update(t);
+		update(l);
+		return l;
+	}
+
+	private Node rotateLeft(Node t) {
+		Node r = t.right;
+		t.right = r.left;
+		r.left = t;
+		update(t);
+		update(r);
+		return r;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram with power-of-two microsecond buckets. Percentiles are
+ * reported as the upper bound of the bucket they fall into.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+	private final static int BUCKETS = 64;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	public LatencyHistogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long micros) {
+		micros = Math.max(0, micros);
+		this.buckets[BUCKETS - Long.numberOfLeadingZeros(micros)].increment();
+		this.count.increment();
+		this.sum.add(micros);
+		this.max.accumulate(micros);
+	}
+
+	public void recordSince(long startNanos) {
+		record((System.nanoTime() - startNanos) / 1000);
+	}
+
+	@Override
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	@Override
+	public double getMean() {
+		long c = this.count.sum();
+		return c == 0 ? 0 : (double) this.sum.sum() / c;
+	}
+
+	@Override
+	public long getMax() {
+		return this.max.get();
+	}
+
+	public long getPercentile(double p) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = this.buckets[i].sum();
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(p * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return i == 0 ? 0 : Math.min((1L << i) - 1, getMax());
+			}
+		}
+		return getMax();
+	}
+
+	@Override
+	public long getP50() {
+		return getPercentile(0.5);
+	}
+
+	@Override
+	public long getP90() {
+		return getPercentile(0.9);
+	}
+
+	@Override
+	public long getP99() {
+		return getPercentile(0.99);
+	}
+}
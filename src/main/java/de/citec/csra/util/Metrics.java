@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Registry of the counters, gauges and latency histograms maintained by this
+ * library. Every metric is registered as an MXBean in the platform MBean
+ * server below the domain {@value #DOMAIN} and can be pulled at once using
+ * {@link #snapshot()}.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class Metrics {
+
+	public final static String DOMAIN = "de.citec.csra";
+	private final static Logger LOG = Logger.getLogger(Metrics.class.getName());
+	private final static Metrics INSTANCE = new Metrics();
+
+	private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+	private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+	private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+	public static Metrics getInstance() {
+		return INSTANCE;
+	}
+
+	private Metrics() {
+	}
+
+	public Counter counter(String name) {
+		return this.counters.computeIfAbsent(name, (n) -> register("Counter", n, new Counter()));
+	}
+
+	public LatencyHistogram histogram(String name) {
+		return this.histograms.computeIfAbsent(name, (n) -> register("Histogram", n, new LatencyHistogram()));
+	}
+
+	public Gauge gauge(String name, LongSupplier supplier) {
+		Gauge gauge = this.gauges.computeIfAbsent(name, (n) -> register("Gauge", n, new Gauge(supplier)));
+		gauge.setSupplier(supplier);
+		return gauge;
+	}
+
+	public Map<String, Number> snapshot() {
+		Map<String, Number> snapshot = new TreeMap<>();
+		this.counters.forEach((n, c) -> snapshot.put(n, c.getCount()));
+		this.gauges.forEach((n, g) -> snapshot.put(n, g.getValue()));
+		this.histograms.forEach((n, h) -> {
+			snapshot.put(n + ".count", h.getCount());
+			snapshot.put(n + ".mean", h.getMean());
+			snapshot.put(n + ".max", h.getMax());
+			snapshot.put(n + ".p50", h.getP50());
+			snapshot.put(n + ".p90", h.getP90());
+			snapshot.put(n + ".p99", h.getP99());
+		});
+		return snapshot;
+	}
+
+	private static <T> T register(String type, String name, T bean) {
+		try {
+			ObjectName on = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(on)) {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(bean, on);
+			}
+		} catch (JMException ex) {
+			LOG.log(Level.WARNING, "Could not register metric '" + name + "' at platform MBean server", ex);
+		}
+		return bean;
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.concurrent.TimeUnit;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Round-trip time estimator following the retransmission timer of RFC 6298.
+ * The timeout is the smoothed round-trip time plus four times its mean
+ * deviation, doubled for every expiry without an intermediate sample and
+ * bounded by the given floor and ceiling.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class RttEstimator {
+
+	private final long initial;
+	private final long floor;
+	private final long ceiling;
+
+	private long srtt;
+	private long rttvar;
+	private boolean sampled;
+	private int backoff;
+
+	public RttEstimator(long initial, long floor, long ceiling, TimeUnit unit) {
+		if (floor > ceiling) {
+			throw new IllegalArgumentException("Timeout floor exceeds ceiling");
+		}
+		this.initial = MICROSECONDS.convert(initial, unit);
+		this.floor = MICROSECONDS.convert(floor, unit);
+		this.ceiling = MICROSECONDS.convert(ceiling, unit);
+	}
+
+	public synchronized void sample(long rtt, TimeUnit unit) {
+		long r = Math.max(0, MICROSECONDS.convert(rtt, unit));
+		if (this.sampled) {
+			this.rttvar += (Math.abs(this.srtt - r) - this.rttvar) / 4;
+			this.srtt += (r - this.srtt) / 8;
+		} else {
+			this.srtt = r;
+			this.rttvar = r / 2;
+			this.sampled = true;
+		}
+		this.backoff = 0;
+	}
+
+	/**
+	 * Records an expired request. Doubles the timeout until the next sample.
+	 */
+	public synchronized void expired() {
+		if (getTimeout(MICROSECONDS) < this.ceiling) {
+			this.backoff++;
+		}
+	}
+
+	public synchronized long getTimeout(TimeUnit unit) {
+		long timeout = this.sampled ? this.srtt + Math.max(1000, 4 * this.rttvar) : this.initial;
+		timeout = Math.min(timeout << Math.min(this.backoff, 16), this.ceiling);
+		return unit.convert(Math.max(this.floor, timeout), MICROSECONDS);
+	}
+
+	public synchronized long getSmoothed(TimeUnit unit) {
+		return unit.convert(this.srtt, MICROSECONDS);
+	}
+
+	public synchronized long getDeviation(TimeUnit unit) {
+		return unit.convert(this.rttvar, MICROSECONDS);
+	}
+}
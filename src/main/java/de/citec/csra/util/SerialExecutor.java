@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs submitted tasks one after another in submission order on a shared
+ * executor without holding on to a thread while idle.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class SerialExecutor implements Executor {
+
+	private final static Logger LOG = Logger.getLogger(SerialExecutor.class.getName());
+	private final static int BATCH = 64;
+
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final Executor executor;
+
+	public SerialExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		this.tasks.add(task);
+		schedule();
+	}
+
+	public boolean isIdle() {
+		return this.tasks.isEmpty() && !this.scheduled.get();
+	}
+
+	private void schedule() {
+		if (!this.tasks.isEmpty() && this.scheduled.compareAndSet(false, true)) {
+			try {
+				this.executor.execute(this::drain);
+			} catch (RejectedExecutionException ex) {
+				this.scheduled.set(false);
+				throw ex;
+			}
+		}
+	}
+
+	private void drain() {
+		try {
+			Runnable task;
+			for (int i = 0; i < BATCH && (task = this.tasks.poll()) != null; i++) {
+				try {
+					task.run();
+				} catch (RuntimeException ex) {
+					LOG.log(Level.SEVERE, "Serial task execution failed", ex);
+				}
+			}
+		} finally {
+			this.scheduled.set(false);
+			schedule();
+		}
+	}
+}
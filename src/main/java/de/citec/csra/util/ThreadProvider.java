@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads used by the library. Implementations may be selected via
+ * {@link Threads}, either programmatically or with the {@code RTA_THREADS}
+ * environment variable.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public interface ThreadProvider {
+
+	/**
+	 * Returns a factory for threads named {@code name-N}. The daemon flag may
+	 * be ignored by implementations whose threads never keep the VM alive.
+	 */
+	ThreadFactory newThreadFactory(String name, boolean daemon);
+
+	/**
+	 * Returns an unbounded executor for work that mostly waits, e.g. task
+	 * execution or allocation slots.
+	 */
+	default ExecutorService newTaskExecutor(String name) {
+		return Executors.newCachedThreadPool(newThreadFactory(name, false));
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Entry point for all thread creation in the library. The provider is chosen
+ * once, on first use, from
+ * <ol>
+ * <li>{@link #setProvider(ThreadProvider)} if called before,</li>
+ * <li>the {@code RTA_THREADS} environment variable, which may be
+ * {@code platform}, {@code virtual} or the class name of a provider,</li>
+ * <li>the first {@link ThreadProvider} registered with the
+ * {@link ServiceLoader},</li>
+ * <li>{@link PlatformThreads} otherwise.</li>
+ * </ol>
+ * Virtual threads are only available on Java 21 or later, older runtimes fall
+ * back to platform threads.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public final class Threads {
+
+	private final static String PROVIDERVAR = "RTA_THREADS";
+	private final static Logger LOG = Logger.getLogger(Threads.class.getName());
+	private static ThreadProvider provider;
+
+	private Threads() {
+	}
+
+	public static synchronized ThreadProvider getProvider() {
+		if (provider == null) {
+			provider = lookup();
+			LOG.log(Level.FINE, "using thread provider ''{0}''", provider);
+		}
+		return provider;
+	}
+
+	/**
+	 * Replaces the provider for threads created afterwards. Threads and
+	 * executors that already exist are not affected.
+	 */
+	public static synchronized void setProvider(ThreadProvider provider) {
+		Threads.provider = provider;
+	}
+
+	public static ThreadFactory factory(String name, boolean daemon) {
+		return getProvider().newThreadFactory(name, daemon);
+	}
+
+	public static ExecutorService newTaskExecutor(String name) {
+		return getProvider().newTaskExecutor(name);
+	}
+
+	private static ThreadProvider lookup() {
+		String configured = System.getenv(PROVIDERVAR);
+		if (configured != null && !configured.isEmpty()) {
+			switch (configured) {
+				case "platform":
+					return new PlatformThreads();
+				case "virtual":
+					if (VirtualThreads.isSupported()) {
+						return new VirtualThreads();
+					}
+					LOG.log(Level.WARNING, "virtual threads not supported by java {0}, using platform threads", System.getProperty("java.version"));
+					return new PlatformThreads();
+				default:
+					try {
+						return (ThreadProvider) Class.forName(configured).getDeclaredConstructor().newInstance();
+					} catch (ReflectiveOperationException | ClassCastException ex) {
+						LOG.log(Level.WARNING, "could not create thread provider ''" + configured + "'', using platform threads", ex);
+						return new PlatformThreads();
+					}
+			}
+		}
+		Iterator<ThreadProvider> loaded = ServiceLoader.load(ThreadProvider.class).iterator();
+		if (loaded.hasNext()) {
+			return loaded.next();
+		}
+		return new PlatformThreads();
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide timer for request deadlines. Tasks must be short, anything
+ * that may block is expected to be handed off to another thread.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class TimeoutService {
+
+	private final static Logger LOG = Logger.getLogger(TimeoutService.class.getName());
+	private static TimeoutService instance;
+
+	private final ScheduledThreadPoolExecutor executor;
+
+	public static synchronized TimeoutService getInstance() {
+		if (instance == null) {
+			instance = new TimeoutService();
+		}
+		return instance;
+	}
+
+	private TimeoutService() {
+		this.executor = new ScheduledThreadPoolExecutor(1, Threads.factory("timeout-service", true));
+		this.executor.setRemoveOnCancelPolicy(true);
+	}
+
+	public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+		return this.executor.schedule(() -> {
+			try {
+				task.run();
+			} catch (RuntimeException ex) {
+				LOG.log(Level.SEVERE, "Timeout handler failed", ex);
+			}
+		}, delay, unit);
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Virtual thread provider. This is the fallback for runtimes before Java 21
+ * which creates platform threads instead, the multi-release jar contains the
+ * actual implementation under {@code META-INF/versions/21}.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class VirtualThreads implements ThreadProvider {
+
+	private final static Logger LOG = Logger.getLogger(VirtualThreads.class.getName());
+	private final PlatformThreads fallback = new PlatformThreads();
+	private boolean warned;
+
+	public static boolean isSupported() {
+		return false;
+	}
+
+	@Override
+	public ThreadFactory newThreadFactory(String name, boolean daemon) {
+		synchronized (this.fallback) {
+			if (!this.warned) {
+				LOG.log(Level.WARNING, "virtual threads not supported by java {0}, using platform threads", System.getProperty("java.version"));
+				this.warned = true;
+			}
+		}
+		return this.fallback.newThreadFactory(name, daemon);
+	}
+
+	@Override
+	public String toString() {
+		return "virtual";
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual thread provider for Java 21 and later.
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class VirtualThreads implements ThreadProvider {
+
+	public static boolean isSupported() {
+		return true;
+	}
+
+	@Override
+	public ThreadFactory newThreadFactory(String name, boolean daemon) {
+		return Thread.ofVirtual().name(name + "-", 1).factory();
+	}
+
+	@Override
+	public ExecutorService newTaskExecutor(String name) {
+		return Executors.newThreadPerTaskExecutor(newThreadFactory(name, true));
+	}
+
+	@Override
+	public String toString() {
+		return "virtual";
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.allocation.cli;
+
+import static de.citec.csra.rst.util.IntervalUtils.buildRelativeRst;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import rsb.RSBException;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.Initiator;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.Policy;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.Policy.FIRST;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.Policy.PRESERVE;
+import rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.Priority;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.Priority.*;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State.CANCELLED;
+import static rst.communicationpatterns.ResourceAllocationType.ResourceAllocation.State.RELEASED;
+
+/**
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class AdmissionControllerTest {
+
+	private BlockingQueue<RemoteAllocation> sent;
+
+	private class Recording extends RemoteAllocation {
+
+		Recording(String id, Priority priority, Policy policy, String... resources) {
+			super(ResourceAllocation.newBuilder()
+					.setId(id)
+					.setPriority(priority)
+					.setPolicy(policy)
+					.setInitiator(Initiator.SYSTEM)
+					.setDescription("admission test")
+					.setSlot(buildRelativeRst(0, 1, HOURS))
+					.addAllResourceIds(Arrays.asList(resources)));
+		}
+
+		@Override
+		public void schedule() throws RSBException {
+			sent.add(this);
+		}
+	}
+
+	@Before
+	public void setUp() {
+		this.sent = new LinkedBlockingQueue<>();
+	}
+
+	private RemoteAllocation allocation(String id, Priority priority, String... resources) {
+		return new Recording(id, priority, PRESERVE, resources);
+	}
+
+	private RemoteAllocation next() throws InterruptedException {
+		RemoteAllocation remote = this.sent.poll(5, SECONDS);
+		assertNotNull(remote);
+		return remote;
+	}
+
+	private void awaitOutstanding(AdmissionController controller, int outstanding) throws InterruptedException {
+		long deadline = System.nanoTime() + SECONDS.toNanos(5);
+		while (controller.getOutstanding() != outstanding && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(outstanding, controller.getOutstanding());
+	}
+
+	@Test
+	public void admitsImmediatelyWithinLimits() throws InterruptedException {
+		AdmissionController controller = new AdmissionController(2, 4);
+		RemoteAllocation a = allocation("a", LOW, "r");
+		RemoteAllocation b = allocation("b", LOW, "r");
+		controller.submit(a);
+		controller.submit(b);
+		assertSame(a, next());
+		assertSame(b, next());
+		assertEquals(2, controller.getOutstanding());
+		assertEquals(0, controller.getQueued());
+	}
+
+	@Test
+	public void sendsByPriorityThenSubmission() throws InterruptedException {
+		AdmissionController controller = new AdmissionController(1, 4);
+		RemoteAllocation a = allocation("a", LOW, "r");
+		controller.submit(a);
+		assertSame(a, next());
+		RemoteAllocation b = allocation("b", LOW, "r");
+		RemoteAllocation c = allocation("c", HIGH, "r");
+		RemoteAllocation d = allocation("d", NORMAL, "r");
+		RemoteAllocation e = allocation("e", HIGH, "r");
+		controller.submit(b);
+		controller.submit(c);
+		controller.submit(d);
+		controller.submit(e);
+		assertEquals(4, controller.getQueued());
+		assertNull(this.sent.poll(50, MILLISECONDS));
+
+		RemoteAllocation current = a;
+		for (RemoteAllocation expected : Arrays.asList(c, e, d, b)) {
+			current.terminate(RELEASED);
+			assertSame(expected, next());
+			current = expected;
+		}
+		current.terminate(RELEASED);
+		awaitOutstanding(controller, 0);
+		assertEquals(0, controller.getQueued());
+	}
+
+	@Test
+	public void sendsStrictPolicyFirst() throws InterruptedException {
+		AdmissionController controller = new AdmissionController(1, 4);
+		RemoteAllocation a = allocation("a", NORMAL, "r");
+		controller.submit(a);
+		assertSame(a, next());
+		RemoteAllocation flexible = new Recording("flexible", NORMAL, FIRST, "r");
+		RemoteAllocation strict = new Recording("strict", NORMAL, PRESERVE, "r");
+		controller.submit(flexible);
+		controller.submit(strict);
+		a.terminate(RELEASED);
+		assertSame(strict, next());
+		strict.terminate(RELEASED);
+		assertSame(flexible, next());
+	}
+
+	@Test
+	public void limitsPerResource() throws InterruptedException {
+		AdmissionController controller = new AdmissionController(10, 1);
+		RemoteAllocation a = allocation("a", NORMAL, "r");
+		RemoteAllocation b = allocation("b", NORMAL, "r");
+		RemoteAllocation c = allocation("c", NORMAL, "s");
+		controller.submit(a);
+		controller.submit(b);
+		controller.submit(c);
+		assertSame(a, next());
+		assertSame(c, next());
+		assertEquals(1, controller.getQueued());
+		assertEquals(2, controller.getOutstanding());
+
+		a.terminate(RELEASED);
+		assertSame(b, next());
+		b.terminate(RELEASED);
+		c.terminate(CANCELLED);
+		awaitOutstanding(controller, 0);
+	}
+
+	@Test
+	public void withdrawQueued() throws InterruptedException, Exception {
+		AdmissionController controller = new AdmissionController(1, 4);
+		RemoteAllocation a = allocation("a", NORMAL, "r");
+		RemoteAllocation b = allocation("b", NORMAL, "r");
+		controller.submit(a);
+		controller.submit(b);
+		assertSame(a, next());
+
+		assertTrue(controller.withdraw(b));
+		assertFalse(controller.withdraw(a));
+		assertEquals(CANCELLED, b.whenTerminated().get(5, SECONDS).getState());
+		assertEquals(0, controller.getQueued());
+
+		a.terminate(RELEASED);
+		awaitOutstanding(controller, 0);
+		assertNull(this.sent.poll(50, MILLISECONDS));
+	}
+
+	@Test
+	public void dropsTerminatedQueued() throws Exception {
+		AdmissionController controller = new AdmissionController(1, 4);
+		RemoteAllocation a = allocation("a", NORMAL, "r");
+		RemoteAllocation b = allocation("b", NORMAL, "r");
+		controller.submit(a);
+		controller.submit(b);
+		assertSame(a, next());
+
+		b.terminate(CANCELLED);
+		b.whenTerminated().get(5, SECONDS);
+		a.terminate(RELEASED);
+		awaitOutstanding(controller, 0);
+		long deadline = System.nanoTime() + SECONDS.toNanos(5);
+		while (controller.getQueued() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(0, controller.getQueued());
+		assertNull(this.sent.poll(50, MILLISECONDS));
+	}
+
+	@Test
+	public void releasesSlotWhenSendingFails() throws Exception {
+		AdmissionController controller = new AdmissionController(1, 4);
+		RemoteAllocation failing = new Recording("failing", NORMAL, PRESERVE, "r") {
+			@Override
+			public void schedule() throws RSBException {
+				throw new RSBException("unreachable");
+			}
+		};
+		RemoteAllocation b = allocation("b", NORMAL, "r");
+		controller.submit(failing);
+		controller.submit(b);
+		assertEquals(CANCELLED, failing.whenTerminated().get(5, SECONDS).getState());
+		assertSame(b, next());
+		b.terminate(RELEASED);
+		awaitOutstanding(controller, 0);
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class IntervalTreeTest {
+
+	@Test
+	public void insertAndGet() {
+		IntervalTree<String> tree = new IntervalTree<>();
+		assertTrue(tree.isEmpty());
+		tree.put("a", 0, 10, "A");
+		tree.put("b", 5, 15, "B");
+		assertEquals(2, tree.size());
+		assertEquals("A", tree.get("a"));
+		assertEquals("B", tree.get("b"));
+		assertNull(tree.get("c"));
+	}
+
+	@Test
+	public void putReplacesKey() {
+		IntervalTree<String> tree = new IntervalTree<>();
+		tree.put("a", 0, 10, "A");
+		tree.put("a", 20, 30, "A2");
+		assertEquals(1, tree.size());
+		assertEquals(Collections.emptyList(), tree.overlapping(0, 10));
+		assertEquals(Arrays.asList("A2"), tree.overlapping(25, 26));
+	}
+
+	@Test
+	public void remove() {
+		IntervalTree<String> tree = new IntervalTree<>();
+		tree.put("a", 0, 10, "A");
+		tree.put("b", 5, 15, "B");
+		assertEquals("A", tree.remove("a"));
+		assertNull(tree.remove("a"));
+		assertEquals(1, tree.size());
+		assertEquals(Arrays.asList("B"), tree.overlapping(0, 20));
+	}
+
+	@Test
+	public void overlapIsHalfOpen() {
+		IntervalTree<String> tree = new IntervalTree<>();
+		tree.put("a", 10, 20, "A");
+		assertEquals(Collections.emptyList(), tree.overlapping(0, 10));
+		assertEquals(Collections.emptyList(), tree.overlapping(20, 30));
+		assertEquals(Arrays.asList("A"), tree.overlapping(19, 20));
+		assertEquals(Arrays.asList("A"), tree.overlapping(0, 11));
+		assertEquals(Arrays.asList("A"), tree.overlapping(12, 13));
+	}
+
+	@Test
+	public void overlapOrderedByBegin() {
+		IntervalTree<String> tree = new IntervalTree<>();
+		tree.put("c", 30, 100, "C");
+		tree.put("a", 10, 100, "A");
+		tree.put("b", 20, 25, "B");
+		assertEquals(Arrays.asList("A", "B", "C"), tree.overlapping(0, 50));
+		assertEquals(Arrays.asList("A", "C"), tree.overlapping(26, 50));
+	}
+
+	@Test
+	public void removeEndingBefore() {
+		IntervalTree<String> tree = new IntervalTree<>();
+		tree.put("a", 0, 10, "A");
+		tree.put("b", 0, 20, "B");
+		tree.put("c", 5, 30, "C");
+		assertEquals(Arrays.asList("a", "b"), tree.removeEndingBefore(20));
+		assertEquals(1, tree.size());
+		assertEquals(Arrays.asList("C"), tree.overlapping(0, 100));
+		assertEquals(Collections.emptyList(), tree.removeEndingBefore(29));
+	}
+
+	@Test
+	public void staysBalanced() {
+		IntervalTree<Integer> tree = new IntervalTree<>();
+		int n = 1 << 12;
+		for (int i = 0; i < n; i++) {
+			tree.put("k" + i, i, i + 1, i);
+		}
+		assertTrue(tree.height() <= bound(n));
+		for (int i = 0; i < n; i += 2) {
+			tree.remove("k" + i);
+		}
+		assertEquals(n / 2, tree.size());
+		assertTrue(tree.height() <= bound(n / 2));
+	}
+
+	@Test
+	public void matchesLinearScan() {
+		Random random = new Random(42);
+		IntervalTree<String> tree = new IntervalTree<>();
+		TreeMap<String, long[]> reference = new TreeMap<>();
+		for (int round = 0; round < 5000; round++) {
+			String key = "k" + random.nextInt(200);
+			if (random.nextInt(4) == 0) {
+				assertEquals(reference.remove(key) != null, tree.remove(key) != null);
+			} else {
+				long begin = random.nextInt(1000);
+				long end = begin + 1 + random.nextInt(100);
+				reference.put(key, new long[]{begin, end});
+				tree.put(key, begin, end, key);
+			}
+			long begin = random.nextInt(1100);
+			long end = begin + 1 + random.nextInt(50);
+			List<String> expected = new ArrayList<>();
+			reference.forEach((k, v) -> {
+				if (v[0] < end && v[1] > begin) {
+					expected.add(k);
+				}
+			});
+			List<String> actual = tree.overlapping(begin, end);
+			Collections.sort(actual);
+			assertEquals(expected, actual);
+			assertEquals(reference.size(), tree.size());
+		}
+		assertTrue(tree.height() <= bound(tree.size()));
+	}
+
+	private static int bound(int n) {
+		return (int) Math.ceil(1.44 * Math.log(n + 2) / Math.log(2));
+	}
+}
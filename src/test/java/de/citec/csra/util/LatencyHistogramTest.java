@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void empty() {
+		LatencyHistogram h = new LatencyHistogram();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getMean(), 0);
+		assertEquals(0, h.getMax());
+		assertEquals(0, h.getP50());
+		assertEquals(0, h.getP99());
+	}
+
+	@Test
+	public void zeroAndNegative() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(0);
+		h.record(-10);
+		assertEquals(2, h.getCount());
+		assertEquals(0, h.getMax());
+		assertEquals(0, h.getP99());
+	}
+
+	@Test
+	public void bucketUpperBound() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(64);
+		h.record(1000);
+		assertEquals(127, h.getPercentile(0.5));
+		assertEquals(1000, h.getPercentile(1.0));
+	}
+
+	@Test
+	public void bucketBoundaries() {
+		for (int i = 1; i < 62; i++) {
+			LatencyHistogram lower = new LatencyHistogram();
+			lower.record(1L << i);
+			lower.record(Long.MAX_VALUE);
+			assertEquals((1L << (i + 1)) - 1, lower.getPercentile(0.5));
+			LatencyHistogram upper = new LatencyHistogram();
+			upper.record((1L << i) - 1);
+			upper.record(Long.MAX_VALUE);
+			assertEquals((1L << i) - 1, upper.getPercentile(0.5));
+		}
+	}
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram h = new LatencyHistogram();
+		for (int i = 0; i < 90; i++) {
+			h.record(10);
+		}
+		for (int i = 0; i < 10; i++) {
+			h.record(1000);
+		}
+		assertEquals(15, h.getP50());
+		assertEquals(15, h.getP90());
+		assertEquals(1000, h.getP99());
+		assertEquals(109, h.getMean(), 1e-9);
+		assertEquals(1000, h.getMax());
+		assertEquals(100, h.getCount());
+	}
+
+	@Test
+	public void largestValue() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, h.getP50());
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class RttEstimatorTest {
+
+	private RttEstimator estimator() {
+		return new RttEstimator(1000, 10, 10000, MILLISECONDS);
+	}
+
+	@Test
+	public void initialTimeout() {
+		assertEquals(1000, estimator().getTimeout(MILLISECONDS));
+	}
+
+	@Test
+	public void firstSample() {
+		RttEstimator rtt = estimator();
+		rtt.sample(100, MILLISECONDS);
+		assertEquals(100000, rtt.getSmoothed(MICROSECONDS));
+		assertEquals(50000, rtt.getDeviation(MICROSECONDS));
+		assertEquals(300000, rtt.getTimeout(MICROSECONDS));
+	}
+
+	@Test
+	public void subsequentSample() {
+		RttEstimator rtt = estimator();
+		rtt.sample(100000, MICROSECONDS);
+		rtt.sample(200000, MICROSECONDS);
+		assertEquals(62500, rtt.getDeviation(MICROSECONDS));
+		assertEquals(112500, rtt.getSmoothed(MICROSECONDS));
+		assertEquals(112500 + 4 * 62500, rtt.getTimeout(MICROSECONDS));
+	}
+
+	@Test
+	public void clockGranularity() {
+		RttEstimator rtt = new RttEstimator(1000, 0, 10000, MILLISECONDS);
+		for (int i = 0; i < 100; i++) {
+			rtt.sample(20000, MICROSECONDS);
+		}
+		assertEquals(20000, rtt.getSmoothed(MICROSECONDS));
+		assertEquals(21000, rtt.getTimeout(MICROSECONDS));
+	}
+
+	@Test
+	public void backoff() {
+		RttEstimator rtt = estimator();
+		rtt.sample(100, MILLISECONDS);
+		rtt.expired();
+		assertEquals(600, rtt.getTimeout(MILLISECONDS));
+		rtt.expired();
+		assertEquals(1200, rtt.getTimeout(MILLISECONDS));
+		rtt.sample(100, MILLISECONDS);
+		assertTrue(rtt.getTimeout(MILLISECONDS) < 600);
+	}
+
+	@Test
+	public void backoffBeforeFirstSample() {
+		RttEstimator rtt = estimator();
+		rtt.expired();
+		assertEquals(2000, rtt.getTimeout(MILLISECONDS));
+	}
+
+	@Test
+	public void floor() {
+		RttEstimator rtt = estimator();
+		rtt.sample(0, MILLISECONDS);
+		assertEquals(10, rtt.getTimeout(MILLISECONDS));
+		rtt.sample(-5, MILLISECONDS);
+		assertEquals(0, rtt.getSmoothed(MICROSECONDS));
+	}
+
+	@Test
+	public void ceiling() {
+		RttEstimator rtt = estimator();
+		rtt.sample(5000, MILLISECONDS);
+		assertEquals(10000, rtt.getTimeout(MILLISECONDS));
+	}
+
+	@Test
+	public void backoffStopsAtCeiling() {
+		RttEstimator rtt = estimator();
+		rtt.sample(100, MILLISECONDS);
+		for (int i = 0; i < 100; i++) {
+			rtt.expired();
+		}
+		assertEquals(10000, rtt.getTimeout(MILLISECONDS));
+		rtt.sample(100, MILLISECONDS);
+		assertEquals(250, rtt.getTimeout(MILLISECONDS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void floorAboveCeiling() {
+		new RttEstimator(1000, 100, 10, MILLISECONDS);
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017 Bielefeld University, Patrick Holthaus
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.citec.csra.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Patrick Holthaus
+ * (<a href=mailto:patrick.holthaus@uni-bielefeld.de>patrick.holthaus@uni-bielefeld.de</a>)
+ */
+public class SerialExecutorTest {
+
+	private ExecutorService pool;
+
+	@Before
+	public void setUp() {
+		this.pool = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		this.pool.shutdownNow();
+	}
+
+	@Test
+	public void submissionOrder() throws InterruptedException {
+		SerialExecutor serial = new SerialExecutor(this.pool);
+		int n = 10000;
+		List<Integer> order = Collections.synchronizedList(new ArrayList<>(n));
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger overlaps = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(n);
+		for (int i = 0; i < n; i++) {
+			int k = i;
+			serial.execute(() -> {
+				if (running.incrementAndGet() > 1) {
+					overlaps.incrementAndGet();
+				}
+				order.add(k);
+				running.decrementAndGet();
+				done.countDown();
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(0, overlaps.get());
+		for (int i = 0; i < n; i++) {
+			assertEquals(i, (int) order.get(i));
+		}
+	}
+
+	@Test
+	public void reentrantSubmissionRunsAfterCurrentTask() throws InterruptedException {
+		SerialExecutor serial = new SerialExecutor(this.pool);
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch gate = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		serial.execute(() -> {
+			try {
+				gate.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		serial.execute(() -> {
+			order.add("a-begin");
+			serial.execute(() -> {
+				order.add("c");
+				done.countDown();
+			});
+			order.add("a-end");
+		});
+		serial.execute(() -> order.add("b"));
+		gate.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("a-begin", "a-end", "b", "c"), order);
+	}
+
+	@Test
+	public void reentrantSubmissionOnCallingThread() {
+		SerialExecutor serial = new SerialExecutor(Runnable::run);
+		List<String> order = new ArrayList<>();
+		serial.execute(() -> {
+			order.add("a-begin");
+			serial.execute(() -> order.add("b"));
+			order.add("a-end");
+		});
+		assertEquals(Arrays.asList("a-begin", "a-end", "b"), order);
+		assertTrue(serial.isIdle());
+	}
+
+	@Test
+	public void drainsBeyondBatch() {
+		SerialExecutor serial = new SerialExecutor(Runnable::run);
+		AtomicInteger count = new AtomicInteger();
+		serial.execute(() -> {
+			for (int i = 0; i < 1000; i++) {
+				serial.execute(count::incrementAndGet);
+			}
+		});
+		assertEquals(1000, count.get());
+		assertTrue(serial.isIdle());
+	}
+
+	@Test
+	public void failureDoesNotStopExecution() throws InterruptedException {
+		SerialExecutor serial = new SerialExecutor(this.pool);
+		CountDownLatch done = new CountDownLatch(1);
+		serial.execute(() -> {
+			throw new IllegalStateException("expected");
+		});
+		serial.execute(done::countDown);
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+}